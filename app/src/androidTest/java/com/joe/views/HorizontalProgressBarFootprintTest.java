@@ -0,0 +1,171 @@
+package com.joe.views;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.drawable.GradientDrawable;
+import android.os.Bundle;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+import android.util.Property;
+import android.view.View;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * HorizontalProgressBarWithAngle 内存占用测试
+ * <p>
+ * 报告默认配置下每个实例相对普通View额外保留的Java堆字节数, 结果输出到logcat和instrumentation状态.
+ * 上限是修改前的占用: {@link LegacyBar}按照修改前的进度条保留同样的对象.
+ */
+@RunWith(AndroidJUnit4.class)
+public class HorizontalProgressBarFootprintTest {
+    private static final String TAG = "BarFootprint";
+    private static final int INSTANCES = 500;
+    private static final int WIDTH = 600;
+    private static final int HEIGHT = 33;
+
+    @Test
+    public void defaultBar_retainsNoMoreThanLegacyBar() throws Exception {
+        final long[] bytes = new long[3];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                final Context context = InstrumentationRegistry.getTargetContext();
+                bytes[0] = measure(new Factory() {
+                    @Override
+                    public View create() {
+                        return new View(context);
+                    }
+                });
+                bytes[1] = measure(new Factory() {
+                    @Override
+                    public View create() {
+                        return new LegacyBar(context);
+                    }
+                });
+                bytes[2] = measure(new Factory() {
+                    @Override
+                    public View create() {
+                        return new HorizontalProgressBarWithAngle(context);
+                    }
+                });
+            }
+        });
+
+        final long legacyExtra = bytes[1] - bytes[0];
+        final long barExtra = bytes[2] - bytes[0];
+        Bundle results = new Bundle();
+        results.putLong("view_bytes_per_instance", bytes[0]);
+        results.putLong("legacy_extra_bytes_per_instance", legacyExtra);
+        results.putLong("bar_extra_bytes_per_instance", barExtra);
+        InstrumentationRegistry.getInstrumentation().sendStatus(0, results);
+        Log.i(TAG, "View: " + bytes[0] + " B/instance, extra before: " + legacyExtra
+                + " B/instance, extra after: " + barExtra + " B/instance");
+
+        assertTrue("extra bytes per instance: " + barExtra + " > " + legacyExtra,
+                barExtra <= legacyExtra);
+    }
+
+    @Test
+    public void sameParameters_shareOneBackgroundBitmap() throws Exception {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                BarRenderCache.trimMemory();
+                Context context = InstrumentationRegistry.getTargetContext();
+                Canvas canvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+                for (int i = 0; i < 50; i++) {
+                    HorizontalProgressBarWithAngle bar = new HorizontalProgressBarWithAngle(context);
+                    bar.setLayerCacheFlags(HorizontalProgressBarWithAngle.CACHE_BACKGROUND);
+                    layout(bar);
+                    bar.onDraw(canvas);
+                }
+                assertEquals(1, BarRenderCache.size());
+            }
+        });
+    }
+
+    private interface Factory {
+        View create();
+    }
+
+    private static long measure(Factory factory) {
+        List<View> views = new ArrayList<View>(INSTANCES);
+        final long before = usedHeap();
+        for (int i = 0; i < INSTANCES; i++) {
+            View view = factory.create();
+            layout(view);
+            views.add(view);
+        }
+        final long after = usedHeap();
+        assertEquals(INSTANCES, views.size());
+        return (after - before) / INSTANCES;
+    }
+
+    private static void layout(View view) {
+        view.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    /**
+     * 修改前的进度条在构造和布局后保留的对象(画笔、两个区域、路径、两个GradientDrawable、
+     * 刷新数据列表、每个实例的属性对象)
+     */
+    private static final class LegacyBar extends View {
+        private final Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        private final Rect mRect = new Rect();
+        private final Rect mProgressRect = new Rect();
+        private final Path mPath = new Path();
+        private final GradientDrawable mBarDrawable = new GradientDrawable();
+        private final GradientDrawable mProgressDrawable = new GradientDrawable();
+        private final ArrayList<Object> mRefreshData = new ArrayList<Object>();
+        private final Property<LegacyBar, Float> mVisualProgress =
+                new Property<LegacyBar, Float>(Float.class, "visual_progress") {
+                    @Override
+                    public Float get(LegacyBar object) {
+                        return object.mProgress;
+                    }
+                };
+        private boolean mNoInvalidate;
+        private boolean mIndeterminate;
+        private int mMinWidth;
+        private int mMaxWidth;
+        private int mMinHeight;
+        private int mMaxHeight;
+        private float mProgress;
+        private int mCornerRadius;
+        private int mMin;
+        private int mMax;
+        private int mBarColor;
+        private int mProgressColor;
+        private int mSecondaryProgressColor;
+        private long mUiThreadId;
+
+        LegacyBar(Context context) {
+            super(context);
+            mBarDrawable.setCornerRadii(new float[8]);
+            mProgressDrawable.setCornerRadii(new float[8]);
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            runtime.gc();
+            runtime.runFinalization();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,147 @@
+package com.joe.views;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.os.Build;
+import android.os.Debug;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.View;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * HorizontalProgressBarWithAngle 绘制测试
+ */
+@RunWith(AndroidJUnit4.class)
+public class HorizontalProgressBarWithAngleTest {
+    private static final int WIDTH = 1000;
+    private static final int HEIGHT = 33;
+    private static final int DRAW_COUNT = 200;
+
+    @Test
+    public void onDraw_steadyState_doesNotAllocate() throws Exception {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getTargetContext();
+                HorizontalProgressBarWithAngle bar = new HorizontalProgressBarWithAngle(context);
+                layout(bar);
+                Bitmap bitmap = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+                Canvas canvas = new Canvas(bitmap);
+
+                //部分进度(尖角)与全部进度两种状态
+                assertNoAllocations(bar, canvas, 50);
+                assertNoAllocations(bar, canvas, 100);
+            }
+        });
+    }
+
+    @Test
+    public void onDraw_recordOnceFill_doesNotAllocate() throws Exception {
+        assumeTrue(Build.VERSION.SDK_INT >= 29);
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getTargetContext();
+                HorizontalProgressBarWithAngle bar = new HorizontalProgressBarWithAngle(context);
+                bar.setRecordOnceFillEnabled(true);
+                layout(bar);
+                try {
+                    //RenderNode是API 29的类, 工程按照compileSdkVersion 26编译
+                    final Class<?> nodeClass = Class.forName("android.graphics.RenderNode");
+                    final Object node = nodeClass.getConstructor(String.class).newInstance("test");
+                    final Canvas canvas = (Canvas) nodeClass.getMethod("beginRecording", int.class,
+                            int.class).invoke(node, WIDTH, HEIGHT);
+                    try {
+                        assertTrue(canvas.isHardwareAccelerated());
+                        assertNoAllocationsWhileMoving(bar, canvas);
+                    } finally {
+                        nodeClass.getMethod("endRecording").invoke(node);
+                    }
+                } catch (Exception e) {
+                    throw new AssertionError(e);
+                }
+            }
+        });
+    }
+
+    @Test
+    public void dirtyRegionVerification_fullInvalidateResetsBaseline() throws Exception {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getTargetContext();
+                HorizontalProgressBarWithAngle bar = new HorizontalProgressBarWithAngle(context);
+                layout(bar);
+                bar.setDirtyRegionVerificationEnabled(true);
+                bar.setProgress(20);
+                bar.setProgress(30);
+
+                //颜色和圆角变化是整体刷新, 之后的局部刷新不能和旧的基准比较
+                bar.setProgressColor(Color.RED);
+                bar.setProgress(40);
+                bar.setCornerRadius(2);
+                bar.setProgress(50);
+                bar.setProgress(60);
+            }
+        });
+    }
+
+    private static void layout(View view) {
+        view.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    @SuppressWarnings("deprecation")
+    private static void assertNoAllocations(HorizontalProgressBarWithAngle bar, Canvas canvas,
+                                            int progress) {
+        bar.setProgress(progress);
+        //预热: 第一次绘制允许构建内部缓存
+        bar.onDraw(canvas);
+
+        Debug.startAllocCounting();
+        Debug.resetThreadAllocCount();
+        for (int i = 0; i < DRAW_COUNT; i++) {
+            bar.onDraw(canvas);
+        }
+        int allocations = Debug.getThreadAllocCount();
+        Debug.stopAllocCounting();
+
+        assertEquals("onDraw allocated at progress " + progress, 0, allocations);
+    }
+
+    /**
+     * 在两个进度之间交替绘制(只记录一次的填充每次都要修改平移)
+     */
+    @SuppressWarnings("deprecation")
+    private static void assertNoAllocationsWhileMoving(HorizontalProgressBarWithAngle bar,
+                                                       Canvas canvas) {
+        final ProgressAngleDrawable drawable = bar.getProgressDrawable();
+        final int[] levels = { ProgressAngleDrawable.MAX_LEVEL * 4 / 10,
+                ProgressAngleDrawable.MAX_LEVEL * 6 / 10 };
+        //预热: 第一次绘制记录填充, 每个平移量第一次使用时装箱
+        for (int level : levels) {
+            drawable.setLevel(level);
+            bar.onDraw(canvas);
+        }
+
+        Debug.startAllocCounting();
+        Debug.resetThreadAllocCount();
+        for (int i = 0; i < DRAW_COUNT; i++) {
+            drawable.setLevel(levels[i & 1]);
+            bar.onDraw(canvas);
+        }
+        int allocations = Debug.getThreadAllocCount();
+        Debug.stopAllocCounting();
+
+        assertEquals("record-once onDraw allocated", 0, allocations);
+    }
+}
@@ -0,0 +1,180 @@
+package com.joe.views;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.LayerDrawable;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * ProgressAngleDrawable 绘制测试(不需要View)
+ */
+@RunWith(AndroidJUnit4.class)
+public class ProgressAngleDrawableTest {
+    private static final int WIDTH = 300;
+    private static final int HEIGHT = 30;
+
+    @Test
+    public void drawsProgressUpToLevel() throws Exception {
+        ProgressAngleDrawable drawable = newDrawable();
+        drawable.setBounds(0, 0, WIDTH, HEIGHT);
+        drawable.setLevel(ProgressAngleDrawable.MAX_LEVEL / 2);
+
+        Bitmap bitmap = render(drawable);
+        //顶边的进度边缘在150, 底边的尖角在140
+        assertEquals(Color.RED, bitmap.getPixel(100, HEIGHT / 2));
+        assertEquals(Color.BLUE, bitmap.getPixel(200, HEIGHT / 2));
+        assertEquals(Color.BLUE, bitmap.getPixel(147, HEIGHT - 2));
+    }
+
+    @Test
+    public void levelChange_dirtyBoundsCoverOnlyTheEdge() throws Exception {
+        ProgressAngleDrawable drawable = newDrawable();
+        drawable.setBounds(0, 0, WIDTH, HEIGHT);
+        drawable.setLevel(ProgressAngleDrawable.MAX_LEVEL / 2);
+        render(drawable);
+
+        assertTrue(drawable.setLevel(ProgressAngleDrawable.MAX_LEVEL * 6 / 10));
+        Rect dirty = drawable.getDirtyBounds();
+        assertTrue(dirty.left > 0);
+        assertTrue(dirty.left <= 150 - HEIGHT / 3);
+        assertTrue(dirty.right >= 180);
+        assertTrue(dirty.right < WIDTH);
+    }
+
+    @Test
+    public void insideLayerDrawable_matchesDirectDraw() throws Exception {
+        ProgressAngleDrawable direct = newDrawable();
+        direct.setBounds(0, 0, WIDTH, HEIGHT);
+        direct.setLevel(3333);
+
+        ProgressAngleDrawable layer = newDrawable();
+        LayerDrawable layerDrawable = new LayerDrawable(new Drawable[] { layer });
+        layerDrawable.setBounds(0, 0, WIDTH, HEIGHT);
+        layerDrawable.setLevel(3333);
+
+        assertTrue(render(direct).sameAs(render(layerDrawable)));
+    }
+
+    @Test
+    public void revealGradient_pixelsDoNotChangeWithLevel() throws Exception {
+        ProgressAngleDrawable drawable = newDrawable();
+        drawable.setBounds(0, 0, WIDTH, HEIGHT);
+        drawable.setProgressGradient(new int[] { Color.RED, Color.GREEN }, null,
+                ProgressAngleDrawable.GRADIENT_REVEAL);
+        drawable.setLevel(ProgressAngleDrawable.MAX_LEVEL / 2);
+        final int half = render(drawable).getPixel(100, HEIGHT / 2);
+        drawable.setLevel(ProgressAngleDrawable.MAX_LEVEL * 8 / 10);
+        assertEquals(half, render(drawable).getPixel(100, HEIGHT / 2));
+        //进度边缘之外仍然是背景
+        assertEquals(Color.BLUE, render(drawable).getPixel(280, HEIGHT / 2));
+    }
+
+    @Test
+    public void revealGradient_shaderSharedBySameWidthAndColors() throws Exception {
+        final int[] colors = { Color.RED, Color.GREEN };
+        assertSame(BarRenderCache.obtainHorizontalGradient(WIDTH, colors, null),
+                BarRenderCache.obtainHorizontalGradient(WIDTH, colors.clone(), null));
+        assertNotSame(BarRenderCache.obtainHorizontalGradient(WIDTH, colors, null),
+                BarRenderCache.obtainHorizontalGradient(WIDTH + 1, colors, null));
+    }
+
+    @Test
+    public void stretchGradient_endsAtProgressEdge() throws Exception {
+        ProgressAngleDrawable drawable = newDrawable();
+        drawable.setBounds(0, 0, WIDTH, HEIGHT);
+        drawable.setProgressGradient(new int[] { Color.BLACK, Color.WHITE }, null,
+                ProgressAngleDrawable.GRADIENT_STRETCH);
+        drawable.setLevel(ProgressAngleDrawable.MAX_LEVEL / 2);
+        render(drawable);
+
+        assertTrue(drawable.setLevel(ProgressAngleDrawable.MAX_LEVEL * 6 / 10));
+        //整个进度的颜色都会变化
+        assertEquals(0, drawable.getDirtyBounds().left);
+        Bitmap bitmap = render(drawable);
+        assertTrue(Color.red(bitmap.getPixel(1, HEIGHT / 2)) < 16);
+        assertTrue(Color.red(bitmap.getPixel(175, 1)) > 240);
+    }
+
+    @Test
+    public void recordOnceFill_softwareCanvasMatchesPathFill() throws Exception {
+        ProgressAngleDrawable path = newDrawable();
+        path.setBounds(0, 0, WIDTH, HEIGHT);
+        path.setLevel(4321);
+
+        ProgressAngleDrawable node = newDrawable();
+        node.setRecordOnceFillEnabled(true);
+        node.setBounds(0, 0, WIDTH, HEIGHT);
+        node.setLevel(4321);
+        assertTrue(node.isRecordOnceFillEnabled());
+        //软件绘制不使用显示列表, 结果与直接填充路径相同
+        assertTrue(render(path).sameAs(render(node)));
+
+        node.setLevel(8765);
+        path.setLevel(8765);
+        assertTrue(render(path).sameAs(render(node)));
+    }
+
+    @Test
+    public void indeterminateStripes_parallelToTip() throws Exception {
+        ProgressAngleDrawable drawable = newDrawable();
+        drawable.setTipAngle(60);
+        drawable.setIndeterminate(true);
+        drawable.setBounds(0, 0, WIDTH, HEIGHT);
+        Bitmap bitmap = render(drawable);
+
+        //沿尖角斜边方向的两个点颜色相同(条纹边界附近的抗锯齿像素除外)
+        final float slant = ProgressGeometry.tipSlant(HEIGHT, 60);
+        final int dx = Math.round(slant * (HEIGHT - 4) / HEIGHT);
+        int same = 0;
+        int total = 0;
+        for (int x = 0; x + dx < WIDTH; x++) {
+            final boolean bottomRed = Color.red(bitmap.getPixel(x, HEIGHT - 2)) > 127;
+            final boolean topRed = Color.red(bitmap.getPixel(x + dx, 2)) > 127;
+            if (bottomRed == topRed) {
+                same++;
+            }
+            total++;
+        }
+        assertTrue("same=" + same + " total=" + total, same >= total * 9 / 10);
+    }
+
+    @Test
+    public void drawRow_matchesDrawAtSameEdge() throws Exception {
+        ProgressAngleDrawable drawable = newDrawable();
+        drawable.setCornerRadius(6);
+        drawable.setBounds(0, 0, WIDTH, HEIGHT);
+        Path path = new Path();
+        for (int level : new int[] { 0, 1234, 5000, 9999, 10000 }) {
+            drawable.setLevel(level);
+            Bitmap expected = render(drawable);
+            Bitmap row = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+            drawable.drawRow(new Canvas(row),
+                    ProgressGeometry.computeEdge(0, ProgressAngleDrawable.MAX_LEVEL, level, WIDTH),
+                    path, true);
+            assertTrue("level=" + level, expected.sameAs(row));
+        }
+    }
+
+    private static ProgressAngleDrawable newDrawable() {
+        ProgressAngleDrawable drawable = new ProgressAngleDrawable();
+        drawable.setBarColor(Color.BLUE);
+        drawable.setProgressColor(Color.RED);
+        drawable.setCornerRadius(0);
+        return drawable;
+    }
+
+    private static Bitmap render(Drawable drawable) {
+        Bitmap bitmap = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+        drawable.draw(new Canvas(bitmap));
+        return bitmap;
+    }
+}
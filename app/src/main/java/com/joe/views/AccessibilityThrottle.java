@@ -0,0 +1,116 @@
+package com.joe.views;
+
+/**
+ * 无障碍播报的节流
+ * <p>
+ * 进度的百分比至少变化{@link #getMinPercentStep()}才播报(到达0%和100%时总是播报),
+ * 两次播报的间隔不小于{@link #getMinIntervalMillis()}; 等待期间的变化合并, 到时间后播报最新值.
+ * 只在UI线程使用, 不分配对象.
+ *
+ * @author Joe
+ * @version 1.0 2018/07/30
+ */
+final class AccessibilityThrottle {
+    /** 不需要播报 */
+    static final long SKIP = -1;
+
+    private long mMinIntervalMillis;
+    private int mMinPercentStep;
+    /**
+     * 上一次播报的百分比, -1表示还没有播报过
+     */
+    private int mAnnouncedPercent = -1;
+    private long mAnnouncedMillis;
+    /**
+     * 是否已经安排了播报
+     */
+    private boolean mPending;
+
+    AccessibilityThrottle(long minIntervalMillis, int minPercentStep) {
+        setPolicy(minIntervalMillis, minPercentStep);
+    }
+
+    /**
+     * @param minIntervalMillis 两次播报的最小间隔
+     * @param minPercentStep    播报的最小百分比变化, [1, 100]
+     */
+    void setPolicy(long minIntervalMillis, int minPercentStep) {
+        if (minIntervalMillis < 0) {
+            throw new IllegalArgumentException("minIntervalMillis must not be negative: "
+                    + minIntervalMillis);
+        }
+        if (minPercentStep < 1 || minPercentStep > 100) {
+            throw new IllegalArgumentException("minPercentStep must be in [1, 100]: " + minPercentStep);
+        }
+        mMinIntervalMillis = minIntervalMillis;
+        mMinPercentStep = minPercentStep;
+    }
+
+    long getMinIntervalMillis() {
+        return mMinIntervalMillis;
+    }
+
+    int getMinPercentStep() {
+        return mMinPercentStep;
+    }
+
+    /**
+     * 进度变化
+     *
+     * @param percent 当前百分比[0, 100]
+     * @param now     当前时间(毫秒)
+     * @return 多少毫秒之后播报, {@link #SKIP}表示不需要安排新的播报
+     */
+    long offer(int percent, long now) {
+        if (mPending || !isSignificant(percent)) {
+            //已经安排的播报会读取最新值
+            return SKIP;
+        }
+        mPending = true;
+        if (mAnnouncedPercent < 0) {
+            return 0;
+        }
+        return Math.max(0, mAnnouncedMillis + mMinIntervalMillis - now);
+    }
+
+    /**
+     * 到了播报时间
+     *
+     * @param percent 当前百分比
+     * @param now     当前时间(毫秒)
+     * @return 是否播报(等待期间进度可能回到了上次播报的附近)
+     */
+    boolean onDue(int percent, long now) {
+        mPending = false;
+        if (!isSignificant(percent)) {
+            return false;
+        }
+        mAnnouncedPercent = percent;
+        mAnnouncedMillis = now;
+        return true;
+    }
+
+    /**
+     * 取消已经安排的播报
+     */
+    void cancel() {
+        mPending = false;
+    }
+
+    /**
+     * 重新开始(例如范围被重置), 下一次变化一定会播报
+     */
+    void reset() {
+        mAnnouncedPercent = -1;
+    }
+
+    private boolean isSignificant(int percent) {
+        if (percent == mAnnouncedPercent) {
+            return false;
+        }
+        if (mAnnouncedPercent < 0 || percent == 0 || percent == 100) {
+            return true;
+        }
+        return Math.abs(percent - mAnnouncedPercent) >= mMinPercentStep;
+    }
+}
@@ -0,0 +1,288 @@
+package com.joe.views;
+
+import android.os.Build;
+import android.os.Trace;
+import android.view.ViewDebug;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进度条的运行时统计: 绘制次数和耗时、刷新次数、进度更新的接收/应用/合并次数、动画启动次数、
+ * 等待UI线程处理的刷新数量
+ * <p>
+ * 每个开启了统计的进度条有一个实例({@link HorizontalProgressBarWithAngle#setMetricsEnabled(boolean)}),
+ * 同时累加到进程级的汇总实例({@link #getGlobal()}). 没有开启统计时进度条不持有实例, 开销只有一次判空.
+ * <p>
+ * {@link #setTraceEnabled(boolean)}开启后, 绘制和刷新会添加android.os.Trace区段(API 18以上),
+ * systrace中可以看到进度条占用的帧时间.
+ *
+ * @author Joe
+ * @version 1.0 2018/07/30
+ */
+public final class BarMetrics {
+    /** 绘制的Trace区段名称 */
+    static final String TRACE_DRAW = "HorizontalProgressBarWithAngle#draw";
+    /** 刷新的Trace区段名称 */
+    static final String TRACE_REFRESH = "HorizontalProgressBarWithAngle#refresh";
+
+    private static final BarMetrics GLOBAL = new BarMetrics(null);
+    /**
+     * 是否添加Trace区段
+     */
+    static volatile boolean sTraceEnabled;
+
+    /**
+     * 汇总实例(进程级实例为null)
+     */
+    private final BarMetrics mGlobal;
+    private final AtomicLong mDrawCount = new AtomicLong();
+    private final AtomicLong mDrawNanos = new AtomicLong();
+    private final AtomicLong mMaxDrawNanos = new AtomicLong();
+    private final AtomicLong mInvalidateCount = new AtomicLong();
+    private final AtomicLong mUpdatesReceived = new AtomicLong();
+    private final AtomicLong mUpdatesApplied = new AtomicLong();
+    private final AtomicLong mAnimatorStarts = new AtomicLong();
+    private final AtomicLong mQueueDepth = new AtomicLong();
+    private final AtomicLong mMaxQueueDepth = new AtomicLong();
+
+    BarMetrics() {
+        this(GLOBAL);
+    }
+
+    private BarMetrics(BarMetrics global) {
+        mGlobal = global;
+    }
+
+    /**
+     * 进程级的汇总统计(所有开启了统计的进度条)
+     */
+    public static BarMetrics getGlobal() {
+        return GLOBAL;
+    }
+
+    /**
+     * 设置是否在绘制和刷新时添加android.os.Trace区段(API 18以上有效)
+     */
+    public static void setTraceEnabled(boolean enabled) {
+        sTraceEnabled = enabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+    }
+
+    public static boolean isTraceEnabled() {
+        return sTraceEnabled;
+    }
+
+    static void beginSection(String name) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.beginSection(name);
+        }
+    }
+
+    static void endSection() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.endSection();
+        }
+    }
+
+    /**
+     * 记录一次绘制
+     *
+     * @param nanos 绘制耗时
+     */
+    void onDraw(long nanos) {
+        mDrawCount.incrementAndGet();
+        mDrawNanos.addAndGet(nanos);
+        updateMax(mMaxDrawNanos, nanos);
+        if (mGlobal != null) {
+            mGlobal.onDraw(nanos);
+        }
+    }
+
+    void onInvalidate() {
+        mInvalidateCount.incrementAndGet();
+        if (mGlobal != null) {
+            mGlobal.onInvalidate();
+        }
+    }
+
+    void onUpdateReceived() {
+        mUpdatesReceived.incrementAndGet();
+        if (mGlobal != null) {
+            mGlobal.onUpdateReceived();
+        }
+    }
+
+    void onUpdateApplied() {
+        mUpdatesApplied.incrementAndGet();
+        if (mGlobal != null) {
+            mGlobal.onUpdateApplied();
+        }
+    }
+
+    void onAnimatorStart() {
+        mAnimatorStarts.incrementAndGet();
+        if (mGlobal != null) {
+            mGlobal.onAnimatorStart();
+        }
+    }
+
+    /**
+     * 一次刷新进入等待UI线程处理的状态
+     */
+    void onQueued() {
+        updateMax(mMaxQueueDepth, mQueueDepth.incrementAndGet());
+        if (mGlobal != null) {
+            mGlobal.onQueued();
+        }
+    }
+
+    /**
+     * 等待中的刷新被UI线程取出
+     */
+    void onDequeued() {
+        if (mQueueDepth.decrementAndGet() < 0) {
+            //开启统计之前入队的刷新
+            mQueueDepth.incrementAndGet();
+            return;
+        }
+        if (mGlobal != null) {
+            mGlobal.onDequeued();
+        }
+    }
+
+    /**
+     * 停止使用(统计被关闭), 把还在等待的刷新从全局的等待数量中去掉
+     */
+    void release() {
+        final long depth = mQueueDepth.getAndSet(0);
+        if (depth > 0 && mGlobal != null) {
+            mGlobal.mQueueDepth.addAndGet(-depth);
+        }
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        for (;;) {
+            final long current = max.get();
+            if (value <= current || max.compareAndSet(current, value)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * onDraw的调用次数
+     */
+    @ViewDebug.ExportedProperty(category = "metrics")
+    public long getDrawCount() {
+        return mDrawCount.get();
+    }
+
+    /**
+     * onDraw的累计耗时(纳秒)
+     */
+    @ViewDebug.ExportedProperty(category = "metrics")
+    public long getDrawTimeNanos() {
+        return mDrawNanos.get();
+    }
+
+    /**
+     * onDraw的最大耗时(纳秒)
+     */
+    @ViewDebug.ExportedProperty(category = "metrics")
+    public long getMaxDrawTimeNanos() {
+        return mMaxDrawNanos.get();
+    }
+
+    /**
+     * onDraw的平均耗时(纳秒)
+     */
+    @ViewDebug.ExportedProperty(category = "metrics")
+    public long getAverageDrawTimeNanos() {
+        final long count = mDrawCount.get();
+        return count > 0 ? mDrawNanos.get() / count : 0;
+    }
+
+    /**
+     * 进度变化引起的刷新(invalidate)次数
+     */
+    @ViewDebug.ExportedProperty(category = "metrics")
+    public long getInvalidateCount() {
+        return mInvalidateCount.get();
+    }
+
+    /**
+     * 收到的进度更新次数
+     */
+    @ViewDebug.ExportedProperty(category = "metrics")
+    public long getUpdatesReceived() {
+        return mUpdatesReceived.get();
+    }
+
+    /**
+     * 实际应用的进度更新次数
+     */
+    @ViewDebug.ExportedProperty(category = "metrics")
+    public long getUpdatesApplied() {
+        return mUpdatesApplied.get();
+    }
+
+    /**
+     * 被合并掉的进度更新次数(包括还在等待处理的更新)
+     */
+    @ViewDebug.ExportedProperty(category = "metrics")
+    public long getUpdatesCoalesced() {
+        return Math.max(0, mUpdatesReceived.get() - mUpdatesApplied.get());
+    }
+
+    /**
+     * 进度动画的启动次数(动画过程中重新定向不计算在内)
+     */
+    @ViewDebug.ExportedProperty(category = "metrics")
+    public long getAnimatorStarts() {
+        return mAnimatorStarts.get();
+    }
+
+    /**
+     * 当前等待UI线程处理的刷新数量(每个进度条最多1个, 汇总实例是所有进度条之和)
+     */
+    @ViewDebug.ExportedProperty(category = "metrics")
+    public long getQueueDepth() {
+        return mQueueDepth.get();
+    }
+
+    /**
+     * 等待UI线程处理的刷新数量的最大值
+     */
+    @ViewDebug.ExportedProperty(category = "metrics")
+    public long getMaxQueueDepth() {
+        return mMaxQueueDepth.get();
+    }
+
+    /**
+     * 清零(等待中的刷新数量除外); 单个进度条的清零不影响汇总
+     */
+    public void reset() {
+        mDrawCount.set(0);
+        mDrawNanos.set(0);
+        mMaxDrawNanos.set(0);
+        mInvalidateCount.set(0);
+        mUpdatesReceived.set(0);
+        mUpdatesApplied.set(0);
+        mAnimatorStarts.set(0);
+        mMaxQueueDepth.set(mQueueDepth.get());
+    }
+
+    @Override
+    public String toString() {
+        return "BarMetrics{draws=" + getDrawCount()
+                + ", drawNanos=" + getDrawTimeNanos()
+                + ", maxDrawNanos=" + getMaxDrawTimeNanos()
+                + ", invalidates=" + getInvalidateCount()
+                + ", received=" + getUpdatesReceived()
+                + ", applied=" + getUpdatesApplied()
+                + ", coalesced=" + getUpdatesCoalesced()
+                + ", animatorStarts=" + getAnimatorStarts()
+                + ", queueDepth=" + getQueueDepth()
+                + ", maxQueueDepth=" + getMaxQueueDepth()
+                + '}';
+    }
+}
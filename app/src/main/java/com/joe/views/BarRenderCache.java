@@ -0,0 +1,189 @@
+package com.joe.views;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.support.v4.util.LruCache;
+
+import java.util.Arrays;
+
+/**
+ * 进度条共享的绘制资源缓存
+ * <p>
+ * 同样尺寸、圆角、颜色的进度条共享同一张圆角矩形位图(背景和全部进度都是圆角矩形),
+ * 列表中成百上千个进度条只需要保存少量位图. 缓存按字节数限制大小, 最久未使用的先淘汰;
+ * 被淘汰的位图仍然可能被进度条引用, 所以只释放引用, 不调用recycle.
+ * <p>
+ * 绘制用的Canvas/Paint/RectF是静态共享的, 只在持有缓存锁时使用.
+ * <p>
+ * 同样宽度和颜色的水平渐变也共享同一个着色器; 共享的着色器不能修改本地矩阵.
+ *
+ * @author Joe
+ * @version 1.0 2018/07/30
+ */
+final class BarRenderCache {
+    /** 缓存的最大字节数 */
+    private static final int MAX_CACHE_BYTES = 2 * 1024 * 1024;
+    /** 缓存的最大着色器数量 */
+    private static final int MAX_CACHE_SHADERS = 32;
+
+    private static final LruCache<Key, Bitmap> sRoundRects = new LruCache<Key, Bitmap>(MAX_CACHE_BYTES) {
+        @Override
+        protected int sizeOf(Key key, Bitmap value) {
+            return value.getByteCount();
+        }
+    };
+    private static final LruCache<GradientKey, Shader> sGradients =
+            new LruCache<>(MAX_CACHE_SHADERS);
+    private static final Canvas sCanvas = new Canvas();
+    private static final Paint sPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private static final RectF sRect = new RectF();
+
+    private BarRenderCache() {
+    }
+
+    /**
+     * 获取填充了圆角矩形的位图, 相同参数的调用返回同一张位图
+     *
+     * @param width  宽度
+     * @param height 高度
+     * @param radius 圆角半径
+     * @param color  填充颜色
+     * @return 共享的位图, 调用者不能修改或回收
+     */
+    static Bitmap obtainRoundRect(int width, int height, float radius, int color) {
+        final Key key = new Key(width, height, radius, color);
+        synchronized (sRoundRects) {
+            Bitmap bitmap = sRoundRects.get(key);
+            if (bitmap == null) {
+                bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+                sCanvas.setBitmap(bitmap);
+                sRect.set(0, 0, width, height);
+                sPaint.setColor(color);
+                sCanvas.drawRoundRect(sRect, radius, radius, sPaint);
+                sCanvas.setBitmap(null);
+                sRoundRects.put(key, bitmap);
+            }
+            return bitmap;
+        }
+    }
+
+    /**
+     * 获取从0到width的水平线性渐变, 相同参数的调用返回同一个着色器
+     *
+     * @param width     渐变宽度
+     * @param colors    颜色(调用者之后不能修改数组)
+     * @param positions 颜色的位置, null表示均匀分布
+     * @return 共享的着色器, 调用者不能修改本地矩阵
+     */
+    static Shader obtainHorizontalGradient(int width, int[] colors, float[] positions) {
+        final GradientKey key = new GradientKey(width, colors, positions);
+        synchronized (sGradients) {
+            Shader shader = sGradients.get(key);
+            if (shader == null) {
+                shader = new LinearGradient(0, 0, width, 0, colors, positions, Shader.TileMode.CLAMP);
+                sGradients.put(key, shader);
+            }
+            return shader;
+        }
+    }
+
+    /**
+     * 清空缓存(内存不足时调用)
+     */
+    static void trimMemory() {
+        synchronized (sRoundRects) {
+            sRoundRects.evictAll();
+        }
+        synchronized (sGradients) {
+            sGradients.evictAll();
+        }
+    }
+
+    /**
+     * 当前缓存的位图数量
+     */
+    static int size() {
+        synchronized (sRoundRects) {
+            return sRoundRects.size();
+        }
+    }
+
+    /**
+     * 缓存键: 尺寸、圆角、颜色
+     */
+    private static final class Key {
+        final int width;
+        final int height;
+        final float radius;
+        final int color;
+
+        Key(int width, int height, float radius, int color) {
+            this.width = width;
+            this.height = height;
+            this.radius = radius;
+            this.color = color;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) o;
+            return width == key.width && height == key.height
+                    && Float.compare(radius, key.radius) == 0 && color == key.color;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = width;
+            result = 31 * result + height;
+            result = 31 * result + Float.floatToIntBits(radius);
+            result = 31 * result + color;
+            return result;
+        }
+    }
+
+    /**
+     * 渐变缓存键: 宽度、颜色、位置
+     */
+    private static final class GradientKey {
+        final int width;
+        final int[] colors;
+        final float[] positions;
+
+        GradientKey(int width, int[] colors, float[] positions) {
+            this.width = width;
+            this.colors = colors;
+            this.positions = positions;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof GradientKey)) {
+                return false;
+            }
+            final GradientKey key = (GradientKey) o;
+            return width == key.width && Arrays.equals(colors, key.colors)
+                    && Arrays.equals(positions, key.positions);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = width;
+            result = 31 * result + Arrays.hashCode(colors);
+            result = 31 * result + Arrays.hashCode(positions);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.joe.views;
+
+import android.graphics.Canvas;
+import android.graphics.Outline;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.os.Build;
+import android.util.Log;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * 只记录一次的进度填充(Android 10及以上的硬件显示列表)
+ * <p>
+ * 内层节点记录100%宽度、右侧带尖角的进度填充, 外层节点固定裁剪为进度条的圆角矩形.
+ * 进度变化时只修改内层节点的平移属性, 不重新记录填充的绘制命令, 也不重建路径;
+ * 宿主的onDraw仍然每次都会执行, 只是重放已经记录的节点.
+ * <p>
+ * RenderNode是API 29的公开类, 工程按照compileSdkVersion 26编译, 所以通过反射调用;
+ * 反射不可用时{@link #create()}返回null, 调用者继续直接填充路径. 只在UI线程使用.
+ * <p>
+ * 节点的平移是节点自身的属性, 渲染线程按照最后一次设置的值绘制:
+ * 同一帧内只能绘制一次, 同一帧内以不同的进度多次绘制时所有位置都会显示最后一次的进度.
+ *
+ * @author Joe
+ * @version 1.0 2018/07/30
+ */
+final class FillRenderNode {
+    private static final String TAG = "FillRenderNode";
+    private static final int API_RENDER_NODE = 29;
+    private static final Object[] NO_ARGS = new Object[0];
+    /**
+     * 装箱后的平移量(下标为平移量的相反数), 所有实例共享, 只在UI线程访问;
+     * 平移量是整数像素, 每个值只装箱一次, 绘制时不分配对象
+     */
+    private static Float[] sOffsets = new Float[0];
+
+    private static boolean sResolved;
+    private static Constructor<?> sNew;
+    private static Method sSetPosition;
+    private static Method sBeginRecording;
+    private static Method sEndRecording;
+    private static Method sSetOutline;
+    private static Method sSetClipToOutline;
+    private static Method sSetTranslationX;
+    private static Method sDiscardDisplayList;
+    private static Method sDrawRenderNode;
+
+    private final Object mClipNode;
+    private final Object mFillNode;
+    private final Outline mOutline = new Outline();
+    /**
+     * 记录填充用的路径(只在重新记录时重建)
+     */
+    private final Path mPath = new Path();
+    /**
+     * 反射调用的参数(复用, 绘制时不分配数组)
+     */
+    private final Object[] mNodeArg = new Object[1];
+    private final Object[] mTranslationArg = new Object[1];
+    /**
+     * 记录的内容是否有效(尺寸、颜色、圆角、尖角变化后需要重新记录)
+     */
+    private boolean mValid;
+    /**
+     * 当前的平移量(1表示还没有设置, 实际的平移量不大于0)
+     */
+    private int mOffset = 1;
+
+    private FillRenderNode(Object clipNode, Object fillNode) {
+        mClipNode = clipNode;
+        mFillNode = fillNode;
+    }
+
+    /**
+     * 创建
+     *
+     * @return 低于Android 10或者反射失败时返回null
+     */
+    static FillRenderNode create() {
+        if (Build.VERSION.SDK_INT < API_RENDER_NODE || !resolve()) {
+            return null;
+        }
+        try {
+            return new FillRenderNode(sNew.newInstance("ProgressFillClip"),
+                    sNew.newInstance("ProgressFill"));
+        } catch (Exception e) {
+            Log.w(TAG, "RenderNode unavailable", e);
+            return null;
+        }
+    }
+
+    private static synchronized boolean resolve() {
+        if (!sResolved) {
+            sResolved = true;
+            try {
+                final Class<?> node = Class.forName("android.graphics.RenderNode");
+                sNew = node.getConstructor(String.class);
+                sSetPosition = node.getMethod("setPosition", int.class, int.class, int.class,
+                        int.class);
+                sBeginRecording = node.getMethod("beginRecording", int.class, int.class);
+                sEndRecording = node.getMethod("endRecording");
+                sSetOutline = node.getMethod("setOutline", Outline.class);
+                sSetClipToOutline = node.getMethod("setClipToOutline", boolean.class);
+                sSetTranslationX = node.getMethod("setTranslationX", float.class);
+                sDiscardDisplayList = node.getMethod("discardDisplayList");
+                sDrawRenderNode = Canvas.class.getMethod("drawRenderNode", node);
+            } catch (Exception e) {
+                Log.w(TAG, "RenderNode unavailable", e);
+                sNew = null;
+            }
+        }
+        return sNew != null;
+    }
+
+    private static Object invoke(Method method, Object target) {
+        return invoke(method, target, NO_ARGS);
+    }
+
+    private static Object invoke(Method method, Object target, Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (Exception e) {
+            throw new IllegalStateException(method.getName() + " failed", e);
+        }
+    }
+
+    /**
+     * 标记需要重新记录
+     */
+    void invalidate() {
+        mValid = false;
+    }
+
+    /**
+     * 释放显示列表(下一次绘制时重新记录)
+     */
+    void discard() {
+        mValid = false;
+        invoke(sDiscardDisplayList, mFillNode);
+        invoke(sDiscardDisplayList, mClipNode);
+    }
+
+    /**
+     * 记录的内容是否有效(显示列表只由{@link #discard()}释放)
+     */
+    boolean isValid() {
+        return mValid;
+    }
+
+    /**
+     * 记录填充和裁剪
+     *
+     * @param fill   100%宽度带尖角的进度路径
+     * @param paint  进度画笔
+     * @param width  进度条宽度
+     * @param height 进度条高度
+     * @param radius 圆角半径
+     */
+    void record(Path fill, Paint paint, int width, int height, float radius) {
+        invoke(sSetPosition, mFillNode, 0, 0, width, height);
+        Canvas canvas = (Canvas) invoke(sBeginRecording, mFillNode, width, height);
+        try {
+            canvas.drawPath(fill, paint);
+        } finally {
+            invoke(sEndRecording, mFillNode);
+        }
+
+        invoke(sSetPosition, mClipNode, 0, 0, width, height);
+        mOutline.setRoundRect(0, 0, width, height, radius);
+        invoke(sSetOutline, mClipNode, mOutline);
+        invoke(sSetClipToOutline, mClipNode, true);
+        canvas = (Canvas) invoke(sBeginRecording, mClipNode, width, height);
+        try {
+            drawNode(canvas, mFillNode);
+        } finally {
+            invoke(sEndRecording, mClipNode);
+        }
+        mValid = true;
+    }
+
+    /**
+     * 记录用的路径(由调用者构建后传给{@link #record(Path, Paint, int, int, float)})
+     */
+    Path getPath() {
+        return mPath;
+    }
+
+    /**
+     * 设置填充的水平偏移(只修改节点属性, 没有变化时不调用)
+     *
+     * @param dx 偏移, 进度边缘减去进度条宽度(不大于0)
+     */
+    void setOffset(int dx) {
+        if (dx == mOffset) {
+            return;
+        }
+        mOffset = dx;
+        mTranslationArg[0] = boxOffset(dx);
+        try {
+            sSetTranslationX.invoke(mFillNode, mTranslationArg);
+        } catch (Exception e) {
+            throw new IllegalStateException("setTranslationX failed", e);
+        }
+    }
+
+    private static Float boxOffset(int dx) {
+        final int index = -dx;
+        Float[] offsets = sOffsets;
+        if (index >= offsets.length) {
+            offsets = Arrays.copyOf(offsets, index + 1);
+            sOffsets = offsets;
+        }
+        Float boxed = offsets[index];
+        if (boxed == null) {
+            boxed = (float) dx;
+            offsets[index] = boxed;
+        }
+        return boxed;
+    }
+
+    /**
+     * 绘制(canvas必须是硬件加速的)
+     */
+    void draw(Canvas canvas) {
+        drawNode(canvas, mClipNode);
+    }
+
+    private void drawNode(Canvas canvas, Object node) {
+        mNodeArg[0] = node;
+        try {
+            sDrawRenderNode.invoke(canvas, mNodeArg);
+        } catch (Exception e) {
+            throw new IllegalStateException("drawRenderNode failed", e);
+        } finally {
+            mNodeArg[0] = null;
+        }
+    }
+}
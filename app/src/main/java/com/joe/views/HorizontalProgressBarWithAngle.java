@@ -1,42 +1,55 @@
 package com.joe.views;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
-import android.content.res.TypedArray;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.Paint;
-import android.graphics.Path;
+import android.graphics.PorterDuff;
 import android.graphics.Rect;
-import android.graphics.Region;
 import android.graphics.drawable.Drawable;
-import android.graphics.drawable.GradientDrawable;
-import android.support.v4.math.MathUtils;
-import android.support.v4.util.Pools;
+import android.os.Build;
+import android.os.SystemClock;
 import android.util.AttributeSet;
-import android.util.FloatProperty;
-import android.util.Log;
+import android.view.Choreographer;
 import android.view.View;
 import android.view.ViewDebug;
 import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityManager;
+import android.view.accessibility.AccessibilityNodeInfo;
 import android.view.animation.DecelerateInterpolator;
+import android.widget.ProgressBar;
 
-import com.joe.sample.R;
-import com.nineoldandroids.animation.ObjectAnimator;
-
-import java.util.ArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 带尖角的水平进度条
+ * <p>
+ * 绘制由{@link ProgressAngleDrawable}完成, View只负责进度状态、跨线程刷新、动画和测量.
  *
  * @author Joe
  * @version 1.0 2018/07/30
  */
 public class HorizontalProgressBarWithAngle extends View {
+    /** 缓存背景图层, 见{@link #setLayerCacheFlags(int)} */
+    public static final int CACHE_BACKGROUND = ProgressAngleDrawable.CACHE_BACKGROUND;
+    /** 缓存全部进度(100%)的图层, 见{@link #setLayerCacheFlags(int)} */
+    public static final int CACHE_FULL_PROGRESS = ProgressAngleDrawable.CACHE_FULL_PROGRESS;
+
     private static final String TAG = HorizontalProgressBarWithAngle.class.getSimpleName();
     /** Duration of smooth progress animations. */
     private static final int PROGRESS_ANIM_DURATION = 80;
-    private static final int MAX_LEVEL = 10000;
+    private static final int MAX_LEVEL = ProgressAngleDrawable.MAX_LEVEL;
     private static final int TIMEOUT_SEND_ACCESSIBILITY_EVENT = 200;
+    private static final int DEFAULT_ACCESSIBILITY_PERCENT_STEP = 5;
+    private static final int TRANSFER_SAMPLE_INTERVAL = 100;
+    /** 预测模式下速率估计的时间常数 */
+    private static final int PREDICTION_TIME_CONSTANT = 3000;
+    /** 限制刷新频率时允许的帧时间误差 */
+    private static final long FRAME_INTERVAL_TOLERANCE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
     /** Interpolator used for smooth progress animations. */
     private static final DecelerateInterpolator PROGRESS_ANIM_INTERPOLATOR =
             new DecelerateInterpolator();
@@ -50,7 +63,7 @@ public class HorizontalProgressBarWithAngle extends View {
     /**
      * 不确定的
      */
-    private boolean mIndeterminate;
+    private volatile boolean mIndeterminate;
     int mMinWidth;
     int mMaxWidth;
     int mMinHeight;
@@ -59,27 +72,35 @@ public class HorizontalProgressBarWithAngle extends View {
     /** Value used to track progress animation, in the range [0...1]. */
     private float mVisualProgress;
     /**
-     * 圆角半径
+     * 负责绘制的Drawable(进度通过level设置)
      */
-    int mCornerRadius;
+    private final ProgressAngleDrawable mDrawable = new ProgressAngleDrawable();
 
     /**
-     * 当前进度
+     * 进度状态(最小值、最大值、当前进度、第二进度), 无锁, 可在任意线程读写
      */
-    private int mProgress;
+    private final ProgressState mState = new ProgressState(0, 100);
     /**
-     * 第二进度
+     * 长整型进度(精确值, 例如已传输的字节数)
      */
-    private int mSecondaryProgress;
+    private final AtomicLong mLongProgress = new AtomicLong();
     /**
-     * 最小值
+     * 长整型最大值(0表示没有使用长整型进度)
      */
-    private int mMin;
-    private boolean mMinInitialized;
+    private volatile long mLongMax;
+    /**
+     * 分段进度(null表示不是分段模式), 分段的进度可在任意线程修改
+     */
+    private volatile SegmentedProgress mSegments;
+    /**
+     * 计算分段区间的缓冲(UI线程)
+     */
+    private float[] mSegmentRuns;
     /**
-     * 最大进度值
+     * 进度边缘所在的像素没有变化时过滤掉刷新
      */
-    private int mMax;
+    private final ProgressEdgeFilter mEdgeFilter = new ProgressEdgeFilter(mState);
+    private boolean mMinInitialized;
     private boolean mMaxInitialized;
     /**
      * 进度条背景色
@@ -98,46 +119,99 @@ public class HorizontalProgressBarWithAngle extends View {
      */
     private long mUiThreadId;
     /**
-     * 画笔
+     * 是否校验局部刷新的结果与整体刷新一致(调试用)
      */
-    private Paint mPaint;
+    private boolean mVerifyDirtyRegion;
     /**
-     * 进度条背景区域
+     * 校验用的位图: 上一次的绘制结果(只重绘局部区域)和整体重绘的结果
      */
-    private Rect mRect;
+    private Bitmap mVerifyPartialBitmap;
+    private Bitmap mVerifyFullBitmap;
+    private Canvas mVerifyCanvas;
     /**
-     * 进度条的区域
+     * 内存不足时释放缓存的回调
      */
-    private Rect mProgressRect;
-    Path mPath = new Path();
+    private TrimMemoryCallbacks mTrimMemoryCallbacks;
+    private AccessibilityEventSender mAccessibilityEventSender;
+    private AccessibilityManager mAccessibilityManager;
     /**
-     * 进度条背景区域
+     * 无障碍播报的节流
      */
-    private GradientDrawable mBarDrawable;
-    private GradientDrawable mProgressDrawable;
-    private Drawable mCurrentDrawable;
-    private AccessibilityEventSender mAccessibilityEventSender;
+    private final AccessibilityThrottle mAccessibilityThrottle = new AccessibilityThrottle(
+            TIMEOUT_SEND_ACCESSIBILITY_EVENT, DEFAULT_ACCESSIBILITY_PERCENT_STEP);
     /**
      * 进度刷新Runnable
      */
     private RefreshProgressRunnable mRefreshProgressRunnable;
+    private volatile boolean mAttached;
+    /**
+     * 是否按帧(Choreographer)刷新进度
+     */
+    private volatile boolean mFramePacing;
+    /**
+     * 按帧刷新时两次刷新的最小间隔(0表示每帧都可以刷新)
+     */
+    private long mMinFrameIntervalNanos;
+    /**
+     * 上一次按帧刷新的帧时间
+     */
+    private long mLastPacedFrameNanos;
+    private Choreographer mChoreographer;
     /**
-     * 刷新数据列表
+     * 按帧刷新回调
      */
-    private final ArrayList<RefreshData> mRefreshData = new ArrayList<RefreshData>();
-    private boolean mAttached;
-    private boolean mRefreshIsPosted;
+    private RefreshFrameCallback mRefreshFrameCallback;
+    /**
+     * 进度动画(每个实例一个, 动画过程中收到新值时直接重新定向)
+     */
+    private ProgressAnimator mProgressAnimator;
+    /**
+     * 预测模式的速率估计和帧回调(只在开启预测模式时创建, UI线程使用)
+     */
+    private ProgressPredictor mPredictor;
+    private PredictionFrameCallback mPredictionFrameCallback;
+    private boolean mPredictionScheduled;
+    /**
+     * 运行时统计(null表示没有开启)
+     */
+    private volatile BarMetrics mMetrics;
+    /**
+     * 进度变化通知(null表示没有监听器)
+     */
+    private volatile ProgressNotifier mProgressNotifier;
+
+    /**
+     * 进度变化的监听器
+     *
+     * @see #setOnProgressChangeListener(OnProgressChangeListener, int, Executor)
+     */
+    public interface OnProgressChangeListener {
+        /**
+         * 进度发生了变化
+         * <p>
+         * 连续的多次更新合并为一次通知, 回调时读取的是最新值; 长整型进度和分段进度可以在回调中通过
+         * {@link #getProgressLong()}、{@link #getSegmentedCompletedLength()}读取.
+         *
+         * @param bar           进度条
+         * @param progress      最新的进度
+         * @param foldedUpdates 本次通知合并的更新次数(至少为1)
+         */
+        void onProgressChanged(HorizontalProgressBarWithAngle bar, int progress, int foldedUpdates);
+    }
+
     /**
      * Command for sending an accessibility event.
      */
     private class AccessibilityEventSender implements Runnable {
         public void run() {
-            sendAccessibilityEvent(AccessibilityEvent.TYPE_VIEW_SELECTED);
+            if (mAccessibilityThrottle.onDue(getAccessibilityPercent(), SystemClock.uptimeMillis())) {
+                sendAccessibilityEvent(AccessibilityEvent.TYPE_VIEW_SELECTED);
+            }
         }
     }
 
     public HorizontalProgressBarWithAngle(Context context) {
-        this(context, null);
+        this(context, ProgressBarStyle.DEFAULT);
     }
 
     public HorizontalProgressBarWithAngle(Context context, AttributeSet attrs) {
@@ -150,45 +224,101 @@ public class HorizontalProgressBarWithAngle extends View {
 
     public HorizontalProgressBarWithAngle(Context context, AttributeSet attrs, int defStyleAttr, int defStyleRes) {
         super(context, attrs, defStyleAttr);
+        init(ProgressBarStyle.obtain(context, attrs, defStyleAttr, defStyleRes));
+    }
+
+    /**
+     * 使用指定的样式创建进度条
+     *
+     * @param context 上下文
+     * @param style   样式
+     */
+    public HorizontalProgressBarWithAngle(Context context, ProgressBarStyle style) {
+        super(context);
+        init(style);
+    }
+
+    private void init(ProgressBarStyle style) {
         mUiThreadId = Thread.currentThread().getId();
-        //初始化进度条
-        initProgressBar();
+        mAccessibilityManager = (AccessibilityManager) getContext().getSystemService(
+                Context.ACCESSIBILITY_SERVICE);
+        mChoreographer = Choreographer.getInstance();
+        mProgressAnimator = new ProgressAnimator(mChoreographer, new ProgressAnimator.Target() {
+            @Override
+            public void onAnimatedValue(float value) {
+                setVisualProgress(value);
+            }
+        }, PROGRESS_ANIM_DURATION, PROGRESS_ANIM_INTERPOLATOR);
         //初始化进度条的值
-        initAttributes(context, attrs, defStyleAttr, defStyleRes);
+        applyStyle(style);
+        mNoInvalidate = true;
+        mDrawable.setCallback(this);
+    }
 
-        mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        mRect = new Rect(0, 0, mMaxWidth, mMaxHeight);
-        mBarDrawable = new GradientDrawable();
-        mProgressDrawable = new GradientDrawable();
-        mCornerRadius = 8;
+    /**
+     * 负责绘制的Drawable, 可以用来修改外观
+     * <p>
+     * 进度(level)由View管理, 不要直接调用它的setLevel.
+     */
+    public ProgressAngleDrawable getProgressDrawable() {
+        return mDrawable;
     }
 
     /**
-     * 初始化属性值
+     * 一次性应用样式: 尺寸、范围、进度、颜色、圆角和尖角
+     * <p>
+     * 所有属性写入后只刷新一次, 不会像逐个调用setMin/setMax/setProgress那样触发多次刷新.
+     * 长整型进度和分段模式会被重置.
      *
-     * @param context
-     * @param attrs
+     * @param style 样式
+     * @see ProgressBarStyle#obtain(Context, AttributeSet, int, int)
+     * @see ProgressBarStyle.Builder
      */
-    private void initAttributes(Context context, AttributeSet attrs, int defStyleAttr, int defStyleRes) {
-        //获取通用属性
-        mMinWidth = attrs.getAttributeIntValue(ANDROIDXML, "minWidth", mMinWidth);
-        mMaxWidth = attrs.getAttributeIntValue(ANDROIDXML, "maxWidth", mMaxWidth);
-        mMinHeight = attrs.getAttributeIntValue(ANDROIDXML, "minHeight", mMinHeight);
-        mMaxHeight = attrs.getAttributeIntValue(ANDROIDXML, "maxHeight", mMaxHeight);
-        setMin(attrs.getAttributeIntValue(ANDROIDXML, "min", mMin));
-        setMax(attrs.getAttributeIntValue(ANDROIDXML, "max", mMax));
-        setProgress(attrs.getAttributeIntValue(ANDROIDXML, "progress", mProgress));
+    public void setStyle(ProgressBarStyle style) {
+        //应用期间不接收Drawable的刷新请求, 最后统一刷新
+        mDrawable.setCallback(null);
+        applyStyle(style);
+        mDrawable.setCallback(this);
+        requestLayout();
+        invalidate();
+    }
 
-        //读取自定义属性
-        TypedArray a = context.obtainStyledAttributes(attrs,
-                R.styleable.HorizontalProgressBarWithAngle);
-        //背景颜色
-        mBarColor = a.getColor(R.styleable.HorizontalProgressBarWithAngle_hpb_barColor, Color.GRAY);
-        //进度条颜色
-        mProgressColor = a.getColor(R.styleable.HorizontalProgressBarWithAngle_hpb_progressColor, 0xFF00CDB0);
-        a.recycle();
+    /**
+     * 写入样式的所有属性
+     *
+     * @param style 样式
+     */
+    private void applyStyle(ProgressBarStyle style) {
+        mMinWidth = style.getMinWidth();
+        mMaxWidth = style.getMaxWidth();
+        mMinHeight = style.getMinHeight();
+        mMaxHeight = style.getMaxHeight();
+        mBarColor = style.getBarColor();
+        mProgressColor = style.getProgressColor();
+        mSecondaryProgressColor = style.getSecondaryProgressColor();
+        mDrawable.setBarColor(mBarColor);
+        mDrawable.setProgressColor(mProgressColor);
+        mDrawable.setSecondaryProgressColor(mSecondaryProgressColor);
+        mDrawable.setCornerRadius(style.getCornerRadius());
+        mDrawable.setTipAngle(style.getTipAngle());
 
-        mNoInvalidate = true;
+        mLongMax = 0;
+        mLongProgress.set(0);
+        if (mSegments != null) {
+            mSegments = null;
+            mDrawable.clearSegmentRuns();
+        }
+        //范围和进度一次写入(样式已经约束过)
+        mState.init(style.getMin(), style.getMax(), style.getProgress(),
+                style.getSecondaryProgress());
+        mMinInitialized = true;
+        mMaxInitialized = true;
+        mAccessibilityThrottle.reset();
+        mEdgeFilter.syncEdges();
+        setIndeterminate(style.isIndeterminate());
+        if (!mIndeterminate) {
+            refresh(ProgressState.FLAG_PRIMARY | ProgressState.FLAG_SECONDARY);
+        }
     }
 
     /**
@@ -197,40 +327,72 @@ public class HorizontalProgressBarWithAngle extends View {
      * @return a positive integer
      *
      * @see #setMax(int)
-//     * @see #getProgress()
+     * @see #getProgress()
 //     * @see #getSecondaryProgress()
      */
     @ViewDebug.ExportedProperty(category = "progress")
-    public synchronized int getMax() {
-        return mMax;
+    public int getMax() {
+        return mState.getMax();
+    }
+
+    /**
+     * <p>Return the lower limit of this progress bar's range.</p>
+     *
+     * @return a positive integer
+     *
+     * @see #setMin(int)
+     * @see #getProgress()
+     */
+    @ViewDebug.ExportedProperty(category = "progress")
+    public int getMin() {
+        return mState.getMin();
+    }
+
+    /**
+     * <p>Get the progress bar's current level of progress. Can be called
+     * from any thread.</p>
+     *
+     * @return the current progress, between {@link #getMin()} and {@link #getMax()}
+     *
+     * @see #setProgress(int)
+     * @see #getMax()
+     */
+    @ViewDebug.ExportedProperty(category = "progress")
+    public int getProgress() {
+        return mState.getProgress();
     }
 
     @Override
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
-        if (mRefreshData != null) {
-            synchronized (this) {
-                final int count = mRefreshData.size();
-                for (int i = 0; i < count; i++) {
-                    final RefreshData rd = mRefreshData.get(i);
-                    doRefreshProgress(rd.progress, rd.fromUser, true, rd.animate);
-                    rd.recycle();
-                }
-                mRefreshData.clear();
-            }
-        }
+        //先标记为已附加, 保证之后提交的刷新都会post, 之前提交的刷新在这里一次处理
         mAttached = true;
+        drainRefresh();
+        startIndeterminateAnimation();
+        registerTrimMemoryCallbacks();
     }
 
     @Override
     protected void onDetachedFromWindow() {
         if (mRefreshProgressRunnable != null) {
             removeCallbacks(mRefreshProgressRunnable);
-            mRefreshIsPosted = false;
+        }
+        if (mRefreshFrameCallback != null) {
+            mChoreographer.removeFrameCallback(mRefreshFrameCallback);
+        }
+        cancelPrediction();
+        if (mProgressAnimator.isRunning()) {
+            //脱离窗口时直接跳到目标值
+            mProgressAnimator.cancel();
+            setVisualProgress(mProgressAnimator.getTargetValue());
         }
         if (mAccessibilityEventSender != null) {
             removeCallbacks(mAccessibilityEventSender);
+            mAccessibilityThrottle.cancel();
         }
+        stopIndeterminateAnimation();
+        unregisterTrimMemoryCallbacks();
+        mDrawable.releaseLayerCaches();
         // This should come after stopAnimation(), otherwise an invalidate message remains in the
         // queue, which can prevent the entire view hierarchy from being GC'ed during a rotation
         super.onDetachedFromWindow();
@@ -247,23 +409,11 @@ public class HorizontalProgressBarWithAngle extends View {
 //     * @see #setSecondaryProgress(int)
      */
 //    @android.view.RemotableViewMethod
-    public synchronized void setMin(int min) {
-        if (mMaxInitialized) {
-            if (min > mMax) {
-                min = mMax;
-            }
-        }
+    public void setMin(int min) {
         mMinInitialized = true;
-        if (mMaxInitialized && min != mMin) {
-            mMin = min;
+        if (mState.setMin(min, mMaxInitialized) && mMaxInitialized) {
             postInvalidate();
-
-            if (mProgress < min) {
-                mProgress = min;
-            }
-            refreshProgress(mProgress, false, false);
-        } else {
-            mMin = min;
+            refresh(ProgressState.FLAG_PRIMARY | ProgressState.FLAG_SECONDARY);
         }
     }
 
@@ -277,23 +427,11 @@ public class HorizontalProgressBarWithAngle extends View {
 //     * @see #setSecondaryProgress(int)
      */
 //    @android.view.RemotableViewMethod
-    public synchronized void setMax(int max) {
-        if (mMinInitialized) {
-            if (max < mMin) {
-                max = mMin;
-            }
-        }
+    public void setMax(int max) {
         mMaxInitialized = true;
-        if (mMinInitialized && max != mMax) {
-            mMax = max;
+        if (mState.setMax(max, mMinInitialized) && mMinInitialized) {
             postInvalidate();
-
-            if (mProgress > max) {
-                mProgress = max;
-            }
-            refreshProgress(mProgress, false, false);
-        } else {
-            mMax = max;
+            refresh(ProgressState.FLAG_PRIMARY | ProgressState.FLAG_SECONDARY);
         }
     }
 
@@ -313,7 +451,7 @@ public class HorizontalProgressBarWithAngle extends View {
 //     * @see #incrementProgressBy(int)
      */
 //    @android.view.RemotableViewMethod
-    public synchronized void setProgress(int progress) {
+    public void setProgress(int progress) {
         setProgressInternal(progress, false, false);
     }
 
@@ -339,7 +477,7 @@ public class HorizontalProgressBarWithAngle extends View {
      */
     public void setBarColor(int mBarColor) {
         this.mBarColor = mBarColor;
-        postInvalidate();
+        mDrawable.setBarColor(mBarColor);
     }
 
     /**
@@ -349,326 +487,1201 @@ public class HorizontalProgressBarWithAngle extends View {
      */
     public void setProgressColor(int mProgressColor) {
         this.mProgressColor = mProgressColor;
-        postInvalidate();
+        mDrawable.setProgressColor(mProgressColor);
     }
 
-    //    @android.view.RemotableViewMethod
-    synchronized boolean setProgressInternal(int progress, boolean fromUser, boolean animate) {
-        if (mIndeterminate) {
-            // Not applicable.
-            return false;
-        }
-
-        progress = MathUtils.clamp(progress, mMin, mMax);
+    /**
+     * 设置第二进度条颜色
+     *
+     * @param secondaryProgressColor
+     */
+    public void setSecondaryProgressColor(int secondaryProgressColor) {
+        this.mSecondaryProgressColor = secondaryProgressColor;
+        mDrawable.setSecondaryProgressColor(secondaryProgressColor);
+    }
 
-        if (progress == mProgress) {
-            // No change from current.
-            return false;
-        }
+    /**
+     * 设置进度条背景的水平渐变
+     *
+     * @param colors    颜色, 至少两个; null表示恢复纯色
+     * @param positions 每个颜色的位置[0...1], null表示均匀分布
+     * @see ProgressAngleDrawable#setBarGradient(int[], float[])
+     */
+    public void setBarGradient(int[] colors, float[] positions) {
+        mDrawable.setBarGradient(colors, positions);
+    }
 
-        mProgress = progress;
-        refreshProgress(mProgress, fromUser, animate);
-        return true;
+    /**
+     * 设置进度的水平渐变
+     *
+     * @param colors    颜色, 至少两个; null表示恢复纯色
+     * @param positions 每个颜色的位置[0...1], null表示均匀分布
+     * @param mode      {@link ProgressAngleDrawable#GRADIENT_REVEAL}(渐变铺满进度条, 随进度显示)或
+     *                  {@link ProgressAngleDrawable#GRADIENT_STRETCH}(渐变拉伸到进度宽度)
+     * @see ProgressAngleDrawable#setProgressGradient(int[], float[], int)
+     */
+    public void setProgressGradient(int[] colors, float[] positions, int mode) {
+        mDrawable.setProgressGradient(colors, positions, mode);
     }
 
     /**
-     * 刷新进度
+     * 设置需要缓存的静态图层
+     * <p>
+     * 背景(以及可选的全部进度状态)只在尺寸、圆角或颜色变化后绘制一次到与View同样大小的位图,
+     * 之后每帧直接绘制位图, 每帧只需要绘制移动的进度. 脱离窗口或系统内存不足时释放缓存.
      *
-     * @param progress
-     * @param fromUser
-     * @param animate
+     * @param flags {@link #CACHE_BACKGROUND}和{@link #CACHE_FULL_PROGRESS}的组合, 0表示不缓存
      */
-    private synchronized void refreshProgress(int progress, boolean fromUser,
-                                              boolean animate) {
-        if (mUiThreadId == Thread.currentThread().getId()) {
-            doRefreshProgress(progress, fromUser, true, animate);
+    public void setLayerCacheFlags(int flags) {
+        if (mDrawable.getLayerCacheFlags() == flags) {
+            return;
+        }
+        mDrawable.setLayerCacheFlags(flags);
+        if (flags != 0) {
+            registerTrimMemoryCallbacks();
         } else {
-            if (mRefreshProgressRunnable == null) {
-                mRefreshProgressRunnable = new RefreshProgressRunnable();
-            }
-
-            final RefreshData rd = RefreshData.obtain(progress, fromUser, animate);
-            mRefreshData.add(rd);
-            if (mAttached && !mRefreshIsPosted) {
-                post(mRefreshProgressRunnable);
-                mRefreshIsPosted = true;
-            }
+            unregisterTrimMemoryCallbacks();
         }
     }
 
     /**
-     * 进度刷新任务
+     * 需要缓存的静态图层
+     *
+     * @see #setLayerCacheFlags(int)
      */
-    private class RefreshProgressRunnable implements Runnable {
-        public void run() {
-            synchronized (HorizontalProgressBarWithAngle.this) {
-                final int count = mRefreshData.size();
-                for (int i = 0; i < count; i++) {
-                    final RefreshData rd = mRefreshData.get(i);
-                    doRefreshProgress(rd.progress, rd.fromUser, true, rd.animate);
-                    rd.recycle();
-                }
-                mRefreshData.clear();
-                mRefreshIsPosted = false;
-            }
-        }
+    public int getLayerCacheFlags() {
+        return mDrawable.getLayerCacheFlags();
     }
 
-    private static class RefreshData {
-        private static final int POOL_MAX = 24;
-        private static final Pools.SynchronizedPool<RefreshData> sPool =
-                new Pools.SynchronizedPool<RefreshData>(POOL_MAX);
+    /**
+     * 只记录一次进度填充(Android 10及以上的硬件显示列表, 低版本继续使用局部刷新的路径填充)
+     * <p>
+     * 带尖角的填充只在尺寸、颜色、圆角或尖角变化时记录一次, 进度变化(包括动画的每一帧)只修改显示列表的
+     * 平移属性. 每次进度变化仍然会执行onDraw, 只是onDraw中不重建路径, 只重放已经记录的显示列表.
+     * <p>
+     * 这里不能跳过onDraw: View只有重新执行onDraw才能修改自己的显示列表, 只修改属性(例如translationX、
+     * clipBounds)需要由子View或覆盖层单独持有填充, 这个控件是单个View, 没有这样的结构.
+     * 节省的只是路径重建和填充的重新记录, UI线程繁忙时进度仍然会卡顿.
+     *
+     * @param enabled 是否启用
+     * @see ProgressAngleDrawable#setRecordOnceFillEnabled(boolean)
+     */
+    public void setRecordOnceFillEnabled(boolean enabled) {
+        mDrawable.setRecordOnceFillEnabled(enabled);
+    }
 
-        public int progress;
-        public boolean fromUser;
-        public boolean animate;
+    public boolean isRecordOnceFillEnabled() {
+        return mDrawable.isRecordOnceFillEnabled();
+    }
 
-        public static RefreshData obtain(int progress, boolean fromUser, boolean animate) {
-            RefreshData rd = sPool.acquire();
-            if (rd == null) {
-                rd = new RefreshData();
-            }
-            rd.progress = progress;
-            rd.fromUser = fromUser;
-            rd.animate = animate;
-            return rd;
+    private void registerTrimMemoryCallbacks() {
+        if (mDrawable.getLayerCacheFlags() == 0 || !mAttached || mTrimMemoryCallbacks != null) {
+            return;
         }
+        mTrimMemoryCallbacks = new TrimMemoryCallbacks();
+        getContext().getApplicationContext().registerComponentCallbacks(mTrimMemoryCallbacks);
+    }
 
-        public void recycle() {
-            sPool.release(this);
+    private void unregisterTrimMemoryCallbacks() {
+        if (mTrimMemoryCallbacks != null) {
+            getContext().getApplicationContext().unregisterComponentCallbacks(mTrimMemoryCallbacks);
+            mTrimMemoryCallbacks = null;
         }
     }
 
-    private synchronized void doRefreshProgress(int progress, boolean fromUser,
-                                                boolean callBackToApp, boolean animate) {
-        int range = mMax - mMin;
-        final float scale = range > 0 ? (progress - mMin) / (float) range : 0;
+    /**
+     * 内存不足时释放图层缓存
+     */
+    private class TrimMemoryCallbacks implements ComponentCallbacks2 {
+        @Override
+        public void onTrimMemory(int level) {
+            if (level >= TRIM_MEMORY_RUNNING_LOW) {
+                mDrawable.releaseLayerCaches();
+                BarRenderCache.trimMemory();
+            }
+        }
 
-        if (animate) {
-            final ObjectAnimator animator;
-            animator = ObjectAnimator.ofFloat(this, "visual_progress", mVisualProgress, scale);
-            animator.setDuration(PROGRESS_ANIM_DURATION);
-            animator.setInterpolator(PROGRESS_ANIM_INTERPOLATOR);
-            animator.start();
-        } else {
-            setVisualProgress(scale);
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
         }
 
-        if (callBackToApp) {
-            onProgressRefresh(scale, fromUser, progress);
+        @Override
+        public void onLowMemory() {
+            mDrawable.releaseLayerCaches();
+            BarRenderCache.trimMemory();
         }
     }
 
-    void onProgressRefresh(float scale, boolean fromUser, int progress) {
+    /**
+     * <p>
+     * Set the current secondary progress to the specified value. Does not do
+     * anything if the progress bar is in indeterminate mode. Can be called from
+     * any thread; updates are coalesced the same way as {@link #setProgress(int)}.
+     * </p>
+     *
+     * @param secondaryProgress the new secondary progress, between {@link #getMin()} and
+     * {@link #getMax()}
+     * @see #getSecondaryProgress()
+     */
+    public void setSecondaryProgress(int secondaryProgress) {
+        if (mIndeterminate) {
+            return;
+        }
+        if (mEdgeFilter.setSecondaryProgress(secondaryProgress) != ProgressEdgeFilter.REFRESH) {
+            //没有变化, 或者第二进度边缘所在的像素没有变化
+            return;
+        }
+        refresh(ProgressState.FLAG_SECONDARY);
+    }
 
+    /**
+     * <p>Get the progress bar's current level of secondary progress. Can be
+     * called from any thread.</p>
+     *
+     * @return the current secondary progress, between {@link #getMin()} and {@link #getMax()}
+     * @see #setSecondaryProgress(int)
+     */
+    @ViewDebug.ExportedProperty(category = "progress")
+    public int getSecondaryProgress() {
+        return mState.getSecondaryProgress();
     }
 
     /**
-     * Schedule a command for sending an accessibility event.
-     * </br>
-     * Note: A command is used to ensure that accessibility events
-     *       are sent at most one in a given time frame to save
-     *       system resources while the progress changes quickly.
+     * <p>Change the indeterminate mode for this progress bar. In indeterminate
+     * mode, the progress is ignored and the bar shows diagonal stripes, slanted
+     * like the progress tip, moving from left to right.</p>
+     *
+     * @param indeterminate true to enable the indeterminate mode
+     * @see #isIndeterminate()
      */
-    private void scheduleAccessibilityEventSender() {
-        if (mAccessibilityEventSender == null) {
-            mAccessibilityEventSender = new AccessibilityEventSender();
+    public void setIndeterminate(boolean indeterminate) {
+        if (mIndeterminate == indeterminate) {
+            return;
+        }
+        mIndeterminate = indeterminate;
+        mDrawable.setIndeterminate(indeterminate);
+        if (indeterminate) {
+            startIndeterminateAnimation();
         } else {
-            removeCallbacks(mAccessibilityEventSender);
+            stopIndeterminateAnimation();
         }
-        postDelayed(mAccessibilityEventSender, TIMEOUT_SEND_ACCESSIBILITY_EVENT);
     }
 
     /**
-     * Sets the visual state of a progress indicator.
+     * <p>Indicate whether this progress bar is in indeterminate mode.</p>
      *
-     * @param progress the visual progress in the range [0...1]
+     * @return true if the progress bar is in indeterminate mode
      */
-    private void setVisualProgress(float progress) {
-        mVisualProgress = progress;
-
-        //刷新进度
-        invalidate();
+    @ViewDebug.ExportedProperty(category = "progress")
+    public boolean isIndeterminate() {
+        return mIndeterminate;
     }
 
     /**
-     * <p>
-     * Initialize the progress bar's default values:
-     * </p>
-     * <ul>
-     * <li>progress = 0</li>
-     * <li>max = 100</li>
-     * <li>animation duration = 4000 ms</li>
-     * <li>indeterminate = false</li>
-     * <li>behavior = repeat</li>
-     * </ul>
-     */
-    private void initProgressBar() {
-        mMin = 0;
-        mMax = 100;
-        mProgress = 0;
-        mSecondaryProgress = 0;
-        mMinWidth = 24;
-        mMaxWidth = 48;
-        mMinHeight = 24;
-        mMaxHeight = 48;
-        mCornerRadius = 4;
+     * 开始不确定模式的条纹动画(只在可见时运行)
+     */
+    private void startIndeterminateAnimation() {
+        if (!mIndeterminate || !mAttached || getWindowVisibility() != VISIBLE || !isShown()) {
+            return;
+        }
+        mDrawable.start();
     }
 
     /**
-     * 测量进度条的宽高
-     *
-     * @param widthMeasureSpec
-     * @param heightMeasureSpec
+     * 停止不确定模式的条纹动画
      */
-    @Override
-    protected synchronized void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        int dw = 0;
-        int dh = 0;
+    private void stopIndeterminateAnimation() {
+        mDrawable.stop();
+    }
 
-        dw = Math.max(mMinWidth, mMaxWidth);
-        dh = Math.max(mMinHeight, mMaxHeight);
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        updateIndeterminateAnimation();
+    }
 
-        //增加边距
-        dw += getPaddingLeft() + getPaddingRight();
-        dh += getPaddingTop() + getPaddingBottom();
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updateIndeterminateAnimation();
+    }
 
-        final int measuredWidth = resolveSizeAndState(dw, widthMeasureSpec, 0);
-        final int measuredHeight = resolveSizeAndState(dh, heightMeasureSpec, 0);
-        Log.d(TAG, "measuredWidth: " + measuredWidth + " measuredHeight:" + measuredHeight);
-        setMeasuredDimension(measuredWidth, measuredHeight);
+    private void updateIndeterminateAnimation() {
+        if (mIndeterminate && getWindowVisibility() == VISIBLE && isShown()) {
+            startIndeterminateAnimation();
+        } else {
+            stopIndeterminateAnimation();
+        }
     }
 
     /**
-     * 绘制进度条
+     * 设置圆角半径
      *
-     * @param canvas
+     * @param cornerRadius 圆角半径(px)
      */
-    @Override
-    protected void onDraw(Canvas canvas) {
-        super.onDraw(canvas);
+    public void setCornerRadius(int cornerRadius) {
+        mDrawable.setCornerRadius(cornerRadius);
+    }
+
+    //    @android.view.RemotableViewMethod
+    boolean setProgressInternal(int progress, boolean fromUser, boolean animate) {
+        if (mIndeterminate) {
+            // Not applicable.
+            return false;
+        }
+
+        final int result = mEdgeFilter.setProgress(progress);
+        if (result == ProgressEdgeFilter.UNCHANGED) {
+            // No change from current.
+            return false;
+        }
+        notifyProgressChanged();
 
-        //绘制背景
-        drawBarBackground(canvas);
+        if (result == ProgressEdgeFilter.CHANGED) {
+            //进度边缘所在的像素没有变化, 只更新数值不刷新
+            return true;
+        }
+        refreshProgress(fromUser, animate);
+        return true;
+    }
 
-        //绘制进度条
-        drawProgress(canvas);
+    /**
+     * 进度值变化(任意线程)
+     */
+    private void notifyProgressChanged() {
+        final ProgressNotifier notifier = mProgressNotifier;
+        if (notifier != null) {
+            notifier.onUpdate();
+        }
     }
 
     /**
-     * 绘制进度条背景
+     * 设置进度变化的监听器, 在UI线程回调, 不限速(同一帧之前的多次更新合并为一次通知)
      *
-     * @param canvas
+     * @param listener 监听器, null表示移除
+     * @see #setOnProgressChangeListener(OnProgressChangeListener, int, Executor)
      */
-    private void drawBarBackground(Canvas canvas) {
-        float r = mCornerRadius;
-        canvas.save();
-        //绘制背景色
-        Log.d(TAG, "onDraw measuredWidth: " + getMeasuredWidth() + " measuredHeight:" + getMeasuredHeight());
-        mRect.set(0, 0, getMeasuredWidth(), getMeasuredHeight());
-        mBarDrawable.setBounds(mRect);
-        mBarDrawable.setColor(mBarColor);
-        mBarDrawable.setShape(GradientDrawable.RECTANGLE);
-        mBarDrawable.setGradientRadius((float)(Math.sqrt(2) * 60));
-        setCornerRadii(mBarDrawable, mCornerRadius, mCornerRadius, mCornerRadius, mCornerRadius);
-        mBarDrawable.draw(canvas);
-        canvas.restore();
+    public void setOnProgressChangeListener(OnProgressChangeListener listener) {
+        setOnProgressChangeListener(listener, 0, null);
     }
 
     /**
-     * 绘制进度条
+     * 设置进度变化的监听器
+     * <p>
+     * 任意线程的进度更新都只记录一次计数; 同一时刻最多有一次待执行的回调, 之前到达的更新合并到这次回调中,
+     * 回调的频率不超过maxPerSecond. 同一个监听器的回调不会并发执行, 分发过程不分配对象.
      *
-     * @param canvas
+     * @param listener     监听器, null表示移除
+     * @param maxPerSecond 每秒最多的回调次数, 0表示不限速
+     * @param executor     执行回调的Executor, null表示UI线程
      */
-    private void drawProgress(Canvas canvas) {
-        if(mProgress <= 0) {
-            return;
+    public void setOnProgressChangeListener(OnProgressChangeListener listener, int maxPerSecond,
+                                            Executor executor) {
+        final ProgressNotifier previous = mProgressNotifier;
+        if (previous != null) {
+            previous.cancel();
         }
-        //特殊情况(100%进度不需要展示尖角)
-        if(mProgress >= mMax) {
-            //已经是全部进度
-            drawFullProgress(canvas);
-            return;
+        mProgressNotifier = listener == null ? null
+                : new ProgressNotifier(new ProgressChangeDispatcher(listener), maxPerSecond, executor);
+    }
+
+    /**
+     * 把合并后的通知转给监听器
+     */
+    private class ProgressChangeDispatcher implements ProgressNotifier.Target {
+        private final OnProgressChangeListener mListener;
+
+        ProgressChangeDispatcher(OnProgressChangeListener listener) {
+            mListener = listener;
         }
-        //计算当前的进度区域
-        canvas.save();
-        if(null == mProgressRect) {
-            mProgressRect = new Rect();
-        }
-        int width = getMeasuredWidth() / mMax * mProgress;
-        mProgressRect.set(0, 0, width, getMeasuredHeight());
-//        //裁剪进度条区域
-//        canvas.clipRect(mProgressRect);
-        mPath.reset();
-        canvas.clipPath(mPath); // makes the clip empty
-        //mpathd的起始位置
-        mPath.moveTo(0, 0);
-        //从起始位置划线到(200, 200)坐标
-        mPath.lineTo(width, 0);
-        mPath.lineTo(width - getMeasuredHeight() / 3, getMeasuredHeight());
-        mPath.lineTo(0, getMeasuredHeight());
-        //将mpath封闭，也可以写 mpath.lineTo(100, 100);代替
-        mPath.close();
-        //裁剪一个三角形
-        canvas.clipPath(mPath, Region.Op.REPLACE);
-
-        //绘制进度图形
-        mProgressDrawable.setBounds(mProgressRect);
-        mProgressDrawable.setColor(mProgressColor);
-        mProgressDrawable.setShape(GradientDrawable.RECTANGLE);
-        mProgressDrawable.setGradientRadius((float)(Math.sqrt(2) * 60));
-        setCornerRadii(mProgressDrawable, mCornerRadius, 0, mCornerRadius, 0);
-        mProgressDrawable.draw(canvas);
-        canvas.restore();
-    }
-
-    /**
-     * 绘制全部进度
+
+        @Override
+        public void onDispatch(int foldedUpdates) {
+            mListener.onProgressChanged(HorizontalProgressBarWithAngle.this, mState.getProgress(),
+                    foldedUpdates);
+        }
+    }
+
+    /**
+     * 设置长整型的最大值(例如文件的总字节数)
+     * <p>
+     * 设置后进度条的范围切换为[0, 10000], 长整型进度按比例映射到这个定点范围,
+     * {@link #getProgress()}返回映射后的值, {@link #getProgressLong()}返回精确值.
      *
-     * @param canvas
+     * @param max 最大值, 必须大于0
+     * @see #setProgressLong(long)
      */
-    private void drawFullProgress(Canvas canvas) {
-        canvas.save();
-        //绘制背景色
-        if(null == mProgressRect) {
-            mProgressRect = new Rect();
+    public void setMaxLong(long max) {
+        if (max <= 0) {
+            throw new IllegalArgumentException("max must be positive: " + max);
         }
-        Log.d(TAG, "drawFullProgress measuredWidth: " + getMeasuredWidth() + " measuredHeight:" + getMeasuredHeight());
-        mProgressRect.set(0, 0, getMeasuredWidth(), getMeasuredHeight());
-        mProgressDrawable.setBounds(mProgressRect);
-        mProgressDrawable.setColor(mProgressColor);
-        mProgressDrawable.setShape(GradientDrawable.RECTANGLE);
-        mProgressDrawable.setGradientRadius((float)(Math.sqrt(2) * 60));
-        setCornerRadii(mProgressDrawable, mCornerRadius, mCornerRadius, mCornerRadius, mCornerRadius);
-        mProgressDrawable.draw(canvas);
-        canvas.restore();
+        mLongMax = max;
+        setMin(0);
+        setMax(MAX_LEVEL);
+        setProgressLong(mLongProgress.get());
     }
 
     /**
-     * 设置矩形的边角半径
+     * 长整型的最大值
      *
-     * @param drawable
-     * @param leftTop
-     * @param rightTop
-     * @param leftBottom
-     * @param rightBottom
+     * @return 最大值, 没有使用长整型进度时返回0
      */
-    static void setCornerRadii(GradientDrawable drawable, float leftTop,
-                               float rightTop, float leftBottom, float rightBottom) {
-        drawable.setCornerRadii(new float[] { leftTop, leftTop, rightTop, rightTop,
-                rightBottom, rightBottom, leftBottom, leftBottom });
+    public long getMaxLong() {
+        return mLongMax;
     }
 
-    private final FloatProperty<HorizontalProgressBarWithAngle> VISUAL_PROGRESS =
-            new FloatProperty<HorizontalProgressBarWithAngle>("visual_progress") {
-                @Override
-                public void setValue(HorizontalProgressBarWithAngle object, float value) {
-                    object.mVisualProgress = value;
-                }
+    /**
+     * 设置长整型进度(例如已传输的字节数), 可在任意线程调用
+     * <p>
+     * 只有进度边缘移动了至少一个像素时才会刷新界面, {@link #getProgressLong()}始终返回精确值.
+     *
+     * @param progress 进度, 在[0, {@link #getMaxLong()}]之间
+     * @see #setMaxLong(long)
+     */
+    public void setProgressLong(long progress) {
+        setProgressLong(progress, false);
+    }
 
-                @Override
-                public Float get(HorizontalProgressBarWithAngle object) {
-                    return object.mVisualProgress;
-                }
-            };
-}
+    /**
+     * 设置长整型进度, 可选择是否动画
+     *
+     * @param progress 进度, 在[0, {@link #getMaxLong()}]之间
+     * @param animate  是否动画
+     */
+    public void setProgressLong(long progress, boolean animate) {
+        final long max = mLongMax;
+        if (max <= 0) {
+            throw new IllegalStateException("setMaxLong must be called before setProgressLong");
+        }
+        progress = progress < 0 ? 0 : (progress > max ? max : progress);
+        final long previous = mLongProgress.getAndSet(progress);
+        //映射到[0, MAX_LEVEL]定点范围(整数运算, 不会因为max很大而丢失精度)
+        if (!setProgressInternal(ProgressGeometry.computeEdge(0, max, progress, MAX_LEVEL), false, animate)
+                && previous != progress) {
+            //定点值没有变化, 精确值变化了
+            notifyProgressChanged();
+        }
+    }
+
+    /**
+     * 长整型进度的精确值
+     */
+    public long getProgressLong() {
+        return mLongProgress.get();
+    }
+
+    /**
+     * 创建传输进度的采样器, 用于{@link ProgressReadableByteChannel}、{@link ProgressWritableByteChannel}、
+     * {@link ProgressInputStream}
+     * <p>
+     * 同时调用{@link #setMaxLong(long)}. 采样器在传输线程上累加字节数, 只有变化达到进度条上的一个像素
+     * (还没有测量时按照{@link ProgressAngleDrawable#MAX_LEVEL}个刻度计算), 或者距离上次通知超过
+     * {@value #TRANSFER_SAMPLE_INTERVAL}ms时才调用{@link #setProgressLong(long)}, 不会在每次读写时更新进度条.
+     *
+     * @param totalBytes 总字节数, 必须大于0
+     * @return 采样器, 只能在一个线程上使用
+     */
+    public ProgressSampler newProgressSampler(long totalBytes) {
+        setMaxLong(totalBytes);
+        final int width = mEdgeFilter.getWidth();
+        final long steps = width > 0 ? width : MAX_LEVEL;
+        return new ProgressSampler(new ProgressSink() {
+            @Override
+            public void onProgress(long transferred) {
+                setProgressLong(transferred);
+            }
+        }, Math.max(1, totalBytes / steps), TRANSFER_SAMPLE_INTERVAL);
+    }
+
+    /**
+     * 切换到分段模式(例如分块并行下载), 可在任意线程调用
+     * <p>
+     * 分段i的范围是[segmentStarts[i], segmentStarts[i + 1]), 最后一个分段到总长度为止.
+     * 每个分段从起点开始填充, 右侧是尖角; 相邻的已完成分段合并成一个区间绘制.
+     *
+     * @param totalLength   总长度(例如文件的总字节数)
+     * @param segmentStarts 分段的起点, 升序, 第一个必须是0
+     * @see #setSegmentProgress(int, long)
+     * @see #clearSegments()
+     */
+    public void setSegments(long totalLength, long[] segmentStarts) {
+        mSegments = new SegmentedProgress(totalLength, segmentStarts);
+        refreshSegments();
+    }
+
+    /**
+     * 退出分段模式
+     */
+    public void clearSegments() {
+        if (mSegments == null) {
+            return;
+        }
+        mSegments = null;
+        refreshSegments();
+    }
+
+    /**
+     * 设置分段已完成的长度, 可在任意线程调用
+     * <p>
+     * 同一帧内的多次调用(包括UI线程的调用)合并为一次刷新, 刷新时才重新计算区间.
+     *
+     * @param segment 分段序号
+     * @param done    已完成的长度, 在[0, 分段长度]之间
+     */
+    public void setSegmentProgress(int segment, long done) {
+        final SegmentedProgress segments = mSegments;
+        if (segments == null) {
+            throw new IllegalStateException("setSegments must be called before setSegmentProgress");
+        }
+        if (segments.setSegmentProgress(segment, done)) {
+            notifyProgressChanged();
+            refreshSegments();
+        }
+    }
+
+    /**
+     * 分段已完成的长度
+     *
+     * @param segment 分段序号
+     */
+    public long getSegmentProgress(int segment) {
+        final SegmentedProgress segments = mSegments;
+        return segments != null ? segments.getSegmentProgress(segment) : 0;
+    }
+
+    /**
+     * 分段数量, 不是分段模式时返回0
+     */
+    public int getSegmentCount() {
+        final SegmentedProgress segments = mSegments;
+        return segments != null ? segments.getSegmentCount() : 0;
+    }
+
+    /**
+     * 所有分段已完成的长度之和, 不是分段模式时返回0
+     */
+    public long getSegmentedCompletedLength() {
+        final SegmentedProgress segments = mSegments;
+        return segments != null ? segments.getCompleted() : 0;
+    }
+
+    /**
+     * 刷新进度
+     * <p>
+     * UI线程直接刷新; 其他线程只把刷新标志写入最新值槽, 多次调用合并为UI线程的一次刷新,
+     * 刷新时读取的是最新的进度值.
+     *
+     * @param fromUser
+     * @param animate
+     */
+    private void refreshProgress(boolean fromUser, boolean animate) {
+        int flags = ProgressState.FLAG_PRIMARY;
+        if (fromUser) {
+            flags |= ProgressState.FLAG_FROM_USER;
+        }
+        if (animate) {
+            flags |= ProgressState.FLAG_ANIMATE;
+        }
+        refresh(flags);
+    }
+
+    /**
+     * 刷新当前进度和/或第二进度
+     *
+     * @param flags ProgressState.FLAG_*的组合
+     */
+    private void refresh(int flags) {
+        final BarMetrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.onUpdateReceived();
+        }
+        if (!mFramePacing && mUiThreadId == Thread.currentThread().getId()) {
+            applyRefresh(flags);
+        } else {
+            offerRefresh(flags, metrics);
+        }
+    }
+
+    /**
+     * 写入最新值槽, 槽之前为空时安排一次UI线程的处理
+     */
+    private void offerRefresh(int flags, BarMetrics metrics) {
+        if (mState.offer(flags)) {
+            if (metrics != null) {
+                metrics.onQueued();
+                if (mMetrics != metrics) {
+                    //入队的同时统计被关闭了
+                    metrics.release();
+                }
+            }
+            if (mAttached) {
+                scheduleRefresh();
+            }
+        }
+    }
+
+    /**
+     * 刷新分段进度: 任何线程都只写入最新值槽, 同一帧内的分段更新合并为一次区间计算
+     */
+    private void refreshSegments() {
+        final BarMetrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.onUpdateReceived();
+        }
+        offerRefresh(ProgressState.FLAG_SEGMENTS, metrics);
+    }
+
+    /**
+     * 应用一次(可能是合并后的)刷新(UI线程)
+     */
+    private void applyRefresh(int flags) {
+        final BarMetrics metrics = mMetrics;
+        if (metrics == null && !BarMetrics.sTraceEnabled) {
+            doApplyRefresh(flags);
+            return;
+        }
+        if (BarMetrics.sTraceEnabled) {
+            BarMetrics.beginSection(BarMetrics.TRACE_REFRESH);
+        }
+        try {
+            if (metrics != null) {
+                metrics.onUpdateApplied();
+            }
+            doApplyRefresh(flags);
+        } finally {
+            if (BarMetrics.sTraceEnabled) {
+                BarMetrics.endSection();
+            }
+        }
+    }
+
+    private void doApplyRefresh(int flags) {
+        if ((flags & ProgressState.FLAG_SEGMENTS) != 0) {
+            doRefreshSegments();
+        }
+        if ((flags & ProgressState.FLAG_SECONDARY) != 0) {
+            doRefreshSecondaryProgress();
+        }
+        if ((flags & ProgressState.FLAG_PRIMARY) != 0) {
+            doRefreshProgress(mState.getProgress(),
+                    (flags & ProgressState.FLAG_FROM_USER) != 0, true,
+                    (flags & ProgressState.FLAG_ANIMATE) != 0);
+        }
+    }
+
+    /**
+     * 安排一次UI线程的刷新(按帧刷新时使用Choreographer, 否则post到消息队列)
+     */
+    private void scheduleRefresh() {
+        if (mFramePacing) {
+            if (mRefreshFrameCallback == null) {
+                mRefreshFrameCallback = new RefreshFrameCallback();
+            }
+            mChoreographer.postFrameCallback(mRefreshFrameCallback);
+        } else {
+            if (mRefreshProgressRunnable == null) {
+                mRefreshProgressRunnable = new RefreshProgressRunnable();
+            }
+            post(mRefreshProgressRunnable);
+        }
+    }
+
+    /**
+     * 设置是否按帧刷新进度
+     * <p>
+     * 开启后, 任意线程的进度更新都先合并到最新值槽, 每个Choreographer帧回调最多应用一次,
+     * 不会再有看不到的中间值占用消息队列. 需要在UI线程调用.
+     *
+     * @param enabled 是否按帧刷新
+     * @see #setMaxUpdateRate(int)
+     */
+    public void setFramePacingEnabled(boolean enabled) {
+        if (mFramePacing == enabled) {
+            return;
+        }
+        mFramePacing = enabled;
+        if (!enabled && mRefreshFrameCallback != null) {
+            mChoreographer.removeFrameCallback(mRefreshFrameCallback);
+        }
+        //切换模式时立即处理已经合并的更新
+        drainRefresh();
+    }
+
+    /**
+     * 是否按帧刷新进度
+     */
+    public boolean isFramePacingEnabled() {
+        return mFramePacing;
+    }
+
+    /**
+     * 设置按帧刷新时每秒最多刷新的次数(例如后台进度条可设置为30)
+     *
+     * @param updatesPerSecond 每秒最多刷新次数, 0表示每帧都可以刷新
+     */
+    public void setMaxUpdateRate(int updatesPerSecond) {
+        mMinFrameIntervalNanos = updatesPerSecond > 0
+                ? TimeUnit.SECONDS.toNanos(1) / updatesPerSecond : 0;
+    }
+
+    /**
+     * 设置是否开启运行时统计
+     * <p>
+     * 开启后记录绘制次数和耗时、刷新次数、进度更新的接收/应用/合并次数、动画启动次数和等待UI线程处理的刷新数量,
+     * 同时累加到{@link BarMetrics#getGlobal()}. 关闭时没有统计开销.
+     *
+     * @param enabled 是否开启
+     * @see #getMetrics()
+     * @see BarMetrics#setTraceEnabled(boolean)
+     */
+    public void setMetricsEnabled(boolean enabled) {
+        if (enabled == (mMetrics != null)) {
+            return;
+        }
+        final BarMetrics old = mMetrics;
+        mMetrics = enabled ? new BarMetrics() : null;
+        if (old != null) {
+            //还在等待的刷新不会再由这个实例取出, 从全局统计中去掉
+            old.release();
+        }
+    }
+
+    public boolean isMetricsEnabled() {
+        return mMetrics != null;
+    }
+
+    /**
+     * 运行时统计
+     *
+     * @return 统计数据, 没有开启时返回null
+     */
+    @ViewDebug.ExportedProperty(category = "metrics", deepExport = true, prefix = "metrics_")
+    public BarMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * 收到的进度更新次数(开启{@link #setMetricsEnabled(boolean)}后统计, 没有开启时返回0)
+     *
+     * @see BarMetrics#getUpdatesReceived()
+     */
+    public long getReceivedUpdateCount() {
+        final BarMetrics metrics = mMetrics;
+        return metrics != null ? metrics.getUpdatesReceived() : 0;
+    }
+
+    /**
+     * 实际应用(刷新到界面)的进度更新次数(开启{@link #setMetricsEnabled(boolean)}后统计, 没有开启时返回0)
+     *
+     * @see BarMetrics#getUpdatesApplied()
+     */
+    public long getAppliedUpdateCount() {
+        final BarMetrics metrics = mMetrics;
+        return metrics != null ? metrics.getUpdatesApplied() : 0;
+    }
+
+    /**
+     * 被合并掉的进度更新次数, 包括还在等待处理的更新(开启{@link #setMetricsEnabled(boolean)}后统计, 没有开启时返回0)
+     *
+     * @see BarMetrics#getUpdatesCoalesced()
+     */
+    public long getCoalescedUpdateCount() {
+        final BarMetrics metrics = mMetrics;
+        return metrics != null ? metrics.getUpdatesCoalesced() : 0;
+    }
+
+    /**
+     * 处理最新值槽中待处理的刷新(UI线程)
+     */
+    private void drainRefresh() {
+        final int flags = mState.drain();
+        if ((flags & ProgressState.FLAG_PENDING) != 0) {
+            final BarMetrics metrics = mMetrics;
+            if (metrics != null) {
+                metrics.onDequeued();
+            }
+            applyRefresh(flags);
+        }
+    }
+
+    /**
+     * 进度刷新任务
+     */
+    private class RefreshProgressRunnable implements Runnable {
+        public void run() {
+            drainRefresh();
+        }
+    }
+
+    /**
+     * 按帧刷新回调
+     */
+    private class RefreshFrameCallback implements Choreographer.FrameCallback {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (mMinFrameIntervalNanos > 0 && frameTimeNanos - mLastPacedFrameNanos
+                    < mMinFrameIntervalNanos - FRAME_INTERVAL_TOLERANCE_NANOS) {
+                //超过了最大刷新频率, 等待之后的帧
+                mChoreographer.postFrameCallback(this);
+                return;
+            }
+            mLastPacedFrameNanos = frameTimeNanos;
+            drainRefresh();
+        }
+    }
+
+    /**
+     * 预测模式的帧回调: 显示的进度按照预测值前进, 预测停止前进后不再请求下一帧
+     */
+    private class PredictionFrameCallback implements Choreographer.FrameCallback {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mPredictionScheduled = false;
+            final ProgressPredictor predictor = mPredictor;
+            if (predictor == null || predictor.getMax() <= 0) {
+                return;
+            }
+            if (!mProgressAnimator.isRunning()) {
+                //正在追赶真实进度时不预测
+                final float scale = (float) (predictor.predict(frameTimeNanos) / predictor.getMax());
+                if (scale > mVisualProgress) {
+                    setVisualProgress(Math.min(scale, 1));
+                }
+            }
+            if (mProgressAnimator.isRunning() || predictor.isAdvancing(frameTimeNanos)) {
+                schedulePrediction();
+            }
+        }
+    }
+
+    private void doRefreshProgress(int progress, boolean fromUser,
+                                   boolean callBackToApp, boolean animate) {
+        final float scale = mState.getScale(progress);
+        mEdgeFilter.onProgressRefreshed(progress);
+
+        if (mPredictor != null) {
+            applyPrediction(progress, scale);
+        } else if (animate) {
+            startProgressAnimation(scale);
+        } else {
+            mProgressAnimator.cancel();
+            setVisualProgress(scale);
+        }
+
+        if (callBackToApp) {
+            onProgressRefresh(scale, fromUser, progress);
+        }
+    }
+
+    private void startProgressAnimation(float scale) {
+        final BarMetrics metrics = mMetrics;
+        if (metrics != null && !mProgressAnimator.isRunning()) {
+            metrics.onAnimatorStart();
+        }
+        mProgressAnimator.animateTo(mVisualProgress, scale);
+    }
+
+    /**
+     * 预测模式下收到真实进度: 由预测值逐帧前进到真实进度, 还没有速率时动画追赶,
+     * 进度倒退时直接跳到真实进度
+     */
+    private void applyPrediction(int progress, float scale) {
+        final long max;
+        final long value;
+        if (mLongMax > 0) {
+            max = mLongMax;
+            value = mLongProgress.get();
+        } else {
+            max = (long) mState.getMax() - mState.getMin();
+            value = (long) progress - mState.getMin();
+        }
+        if (!mPredictor.onUpdate(value, max, System.nanoTime())) {
+            mProgressAnimator.cancel();
+            setVisualProgress(scale);
+        } else if (scale > mVisualProgress && !mPredictor.isAdvancing(System.nanoTime())) {
+            startProgressAnimation(scale);
+        }
+        schedulePrediction();
+    }
+
+    private void schedulePrediction() {
+        if (mPredictionScheduled || !mAttached) {
+            return;
+        }
+        if (mPredictionFrameCallback == null) {
+            mPredictionFrameCallback = new PredictionFrameCallback();
+        }
+        mPredictionScheduled = true;
+        mChoreographer.postFrameCallback(mPredictionFrameCallback);
+    }
+
+    private void cancelPrediction() {
+        if (mPredictionScheduled) {
+            mPredictionScheduled = false;
+            mChoreographer.removeFrameCallback(mPredictionFrameCallback);
+        }
+    }
+
+    /**
+     * 设置是否开启预测模式(UI线程)
+     * <p>
+     * 适用于更新很稀疏的进度(例如每1~2秒轮询一次的后台任务): 用指数加权移动平均估计进度速率,
+     * 真实进度到达后, 显示的进度每帧前进, 在一个估计的更新间隔内匀速到达这个真实进度, 不会超过真实进度;
+     * 速率稳定时进度连续前进, 落后真实进度一个更新间隔. 还没有速率时用短动画追赶. 没有变化时不请求帧.
+     * 开启后忽略setProgress的animate参数, 关闭时直接显示真实进度.
+     *
+     * @param enabled 是否开启
+     * @see #getThroughput()
+     * @see #getEstimatedRemainingMillis()
+     */
+    public void setPredictiveProgressEnabled(boolean enabled) {
+        if (enabled == (mPredictor != null)) {
+            return;
+        }
+        if (enabled) {
+            mPredictor = new ProgressPredictor(PREDICTION_TIME_CONSTANT);
+        } else {
+            mPredictor = null;
+            cancelPrediction();
+            mProgressAnimator.cancel();
+            setVisualProgress(mState.getScale(mState.getProgress()));
+        }
+    }
+
+    public boolean isPredictiveProgressEnabled() {
+        return mPredictor != null;
+    }
+
+    /**
+     * 预测模式估计的进度速率(UI线程)
+     *
+     * @return 每秒的进度(使用{@link #setMaxLong(long)}时是长整型进度的单位, 例如字节/秒),
+     * 没有开启预测模式或者还没有足够的更新时返回0
+     */
+    public double getThroughput() {
+        final ProgressPredictor predictor = mPredictor;
+        return predictor == null ? 0 : predictor.getThroughput();
+    }
+
+    /**
+     * 预测模式估计的剩余时间(UI线程)
+     *
+     * @return 毫秒, 没有开启预测模式或者速率未知时返回-1
+     */
+    public long getEstimatedRemainingMillis() {
+        final ProgressPredictor predictor = mPredictor;
+        return predictor == null ? -1 : predictor.getRemainingMillis(System.nanoTime());
+    }
+
+    void onProgressRefresh(float scale, boolean fromUser, int progress) {
+        scheduleAccessibilityEventSender();
+    }
+
+    private void doRefreshSegments() {
+        final SegmentedProgress segments = mSegments;
+        if (segments == null) {
+            mDrawable.clearSegmentRuns();
+            return;
+        }
+        final int capacity = segments.getSegmentCount() * 2;
+        if (mSegmentRuns == null || mSegmentRuns.length < capacity) {
+            mSegmentRuns = new float[capacity];
+        }
+        final int runCount = segments.computeRuns(mSegmentRuns);
+        mDrawable.setSegmentRuns(mSegmentRuns, runCount);
+        scheduleAccessibilityEventSender();
+    }
+
+    private void doRefreshSecondaryProgress() {
+        final float scale = mState.getScale(mState.getSecondaryProgress());
+        mEdgeFilter.onSecondaryProgressRefreshed();
+        setVisualSecondaryProgress(scale);
+    }
+
+    /**
+     * Schedule a command for sending an accessibility event.
+     * </br>
+     * Note: A command is used to ensure that accessibility events
+     *       are sent at most one in a given time frame to save
+     *       system resources while the progress changes quickly.
+     *       Changes below the percentage step are not announced.
+     */
+    private void scheduleAccessibilityEventSender() {
+        if (mAccessibilityManager == null || !mAccessibilityManager.isEnabled()) {
+            return;
+        }
+        final long delay = mAccessibilityThrottle.offer(getAccessibilityPercent(),
+                SystemClock.uptimeMillis());
+        if (delay == AccessibilityThrottle.SKIP) {
+            return;
+        }
+        if (mAccessibilityEventSender == null) {
+            mAccessibilityEventSender = new AccessibilityEventSender();
+        }
+        postDelayed(mAccessibilityEventSender, delay);
+    }
+
+    /**
+     * 设置无障碍播报的频率
+     * <p>
+     * 进度的百分比至少变化minPercentStep才播报(到达0%和100%时总是播报), 两次播报的间隔不小于minIntervalMillis,
+     * 等待期间的变化合并为一次播报. 默认200ms、5%.
+     *
+     * @param minIntervalMillis 两次播报的最小间隔(毫秒)
+     * @param minPercentStep    播报的最小百分比变化, [1, 100]
+     */
+    public void setAccessibilityAnnouncementPolicy(long minIntervalMillis, int minPercentStep) {
+        mAccessibilityThrottle.setPolicy(minIntervalMillis, minPercentStep);
+    }
+
+    /**
+     * 当前进度的百分比(分段模式下是已完成长度的百分比), 向下取整
+     */
+    private int getAccessibilityPercent() {
+        final SegmentedProgress segments = mSegments;
+        if (segments != null) {
+            return ProgressGeometry.computeEdge(0, segments.getTotal(), segments.getCompleted(), 100);
+        }
+        return mState.computeEdge(mState.getProgress(), 100);
+    }
+
+    @Override
+    public CharSequence getAccessibilityClassName() {
+        //按照系统进度条播报
+        return ProgressBar.class.getName();
+    }
+
+    @Override
+    public void onInitializeAccessibilityEvent(AccessibilityEvent event) {
+        super.onInitializeAccessibilityEvent(event);
+        event.setItemCount(mState.getMax() - mState.getMin());
+        event.setCurrentItemIndex(mState.getProgress() - mState.getMin());
+    }
+
+    @Override
+    public void onInitializeAccessibilityNodeInfo(AccessibilityNodeInfo info) {
+        super.onInitializeAccessibilityNodeInfo(info);
+        if (mIndeterminate || Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT) {
+            return;
+        }
+        final SegmentedProgress segments = mSegments;
+        if (segments != null) {
+            info.setRangeInfo(AccessibilityNodeInfo.RangeInfo.obtain(
+                    AccessibilityNodeInfo.RangeInfo.RANGE_TYPE_PERCENT, 0, 100,
+                    segments.getCompleted() * 100f / segments.getTotal()));
+        } else {
+            info.setRangeInfo(AccessibilityNodeInfo.RangeInfo.obtain(
+                    AccessibilityNodeInfo.RangeInfo.RANGE_TYPE_INT, mState.getMin(), mState.getMax(),
+                    mState.getProgress()));
+        }
+    }
+
+    /**
+     * Sets the visual state of a progress indicator.
+     *
+     * @param progress the visual progress in the range [0...1]
+     */
+    private void setVisualProgress(float progress) {
+        mVisualProgress = progress;
+        //Drawable只在进度边缘移动时刷新新旧边缘之间的区域, 见invalidateDrawable
+        mDrawable.setLevel(toDrawableLevel(progress));
+    }
+
+    /**
+     * Sets the visual state of the secondary progress.
+     *
+     * @param progress the visual secondary progress in the range [0...1]
+     */
+    private void setVisualSecondaryProgress(float progress) {
+        mDrawable.setSecondaryLevel(toDrawableLevel(progress));
+    }
+
+    /**
+     * 把[0...1]的比例转换为Drawable的level
+     */
+    private static int toDrawableLevel(float scale) {
+        if (scale <= 0) {
+            return 0;
+        }
+        if (scale >= 1) {
+            return MAX_LEVEL;
+        }
+        return Math.round(scale * MAX_LEVEL);
+    }
+
+    @Override
+    protected boolean verifyDrawable(Drawable who) {
+        return who == mDrawable || super.verifyDrawable(who);
+    }
+
+    /**
+     * 只刷新Drawable给出的区域(进度变化时是新旧进度边缘之间的区域, 包括尖角的宽度)
+     */
+    @Override
+    public void invalidateDrawable(Drawable drawable) {
+        if (drawable != mDrawable) {
+            super.invalidateDrawable(drawable);
+            return;
+        }
+        final BarMetrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.onInvalidate();
+        }
+        if (mDrawable.isIndeterminate() && mDrawable.isRunning()) {
+            if (mVerifyDirtyRegion) {
+                releaseVerifyBitmaps();
+            }
+            //条纹动画, 下一帧再刷新
+            postInvalidateOnAnimation();
+            return;
+        }
+        final Rect dirty = drawable.getDirtyBounds();
+        final int left = dirty.left;
+        final int right = dirty.right;
+        if (mVerifyDirtyRegion) {
+            if (right - left < getWidth()) {
+                verifyDirtyRegion(left, right);
+            } else {
+                //整体刷新(颜色、圆角、渐变、尖角等变化)后旧的基准已经失效, 下一次局部刷新重新建立基准
+                releaseVerifyBitmaps();
+            }
+        }
+        final int scrollX = getScrollX();
+        final int scrollY = getScrollY();
+        invalidate(left + scrollX, dirty.top + scrollY, right + scrollX, dirty.bottom + scrollY);
+    }
+
+    /**
+     * 设置是否校验局部刷新(调试用)
+     * <p>
+     * 开启后每次局部刷新都会在离屏位图中分别做一次局部重绘和整体重绘, 结果不一致时抛出
+     * {@link IllegalStateException}. 会分配位图并增加绘制开销, 不要在正式环境开启.
+     *
+     * @param enabled 是否校验
+     */
+    public void setDirtyRegionVerificationEnabled(boolean enabled) {
+        mVerifyDirtyRegion = enabled;
+        if (!enabled) {
+            releaseVerifyBitmaps();
+        }
+    }
+
+    /**
+     * 校验局部重绘[left, right)后的结果与整体重绘一致
+     */
+    private void verifyDirtyRegion(int left, int right) {
+        final int width = getWidth();
+        final int height = getHeight();
+        if (height <= 0) {
+            return;
+        }
+        if (mVerifyCanvas == null) {
+            mVerifyCanvas = new Canvas();
+        }
+        final boolean hasPrevious = mVerifyPartialBitmap != null
+                && mVerifyPartialBitmap.getWidth() == width
+                && mVerifyPartialBitmap.getHeight() == height;
+        if (!hasPrevious) {
+            releaseVerifyBitmaps();
+            mVerifyPartialBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            mVerifyFullBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        }
+
+        //整体重绘
+        mVerifyFullBitmap.eraseColor(Color.TRANSPARENT);
+        mVerifyCanvas.setBitmap(mVerifyFullBitmap);
+        mDrawable.draw(mVerifyCanvas);
+
+        if (hasPrevious) {
+            //在上一次的结果上只重绘局部区域
+            mVerifyCanvas.setBitmap(mVerifyPartialBitmap);
+            mVerifyCanvas.save();
+            mVerifyCanvas.clipRect(left, 0, right, height);
+            mVerifyCanvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+            mDrawable.draw(mVerifyCanvas);
+            mVerifyCanvas.restore();
+            if (!mVerifyPartialBitmap.sameAs(mVerifyFullBitmap)) {
+                mVerifyCanvas.setBitmap(null);
+                throw new IllegalStateException("Partial redraw of [" + left + ", " + right
+                        + ") differs from full redraw at edge " + mDrawable.getDrawnEdge());
+            }
+        }
+        mVerifyCanvas.setBitmap(null);
+
+        //整体重绘的结果作为下一次校验的基准
+        final Bitmap previous = mVerifyPartialBitmap;
+        mVerifyPartialBitmap = mVerifyFullBitmap;
+        mVerifyFullBitmap = previous;
+    }
+
+    private void releaseVerifyBitmaps() {
+        if (mVerifyPartialBitmap != null) {
+            mVerifyPartialBitmap.recycle();
+            mVerifyPartialBitmap = null;
+        }
+        if (mVerifyFullBitmap != null) {
+            mVerifyFullBitmap.recycle();
+            mVerifyFullBitmap = null;
+        }
+    }
+
+    /**
+     * 测量进度条的宽高
+     *
+     * @param widthMeasureSpec
+     * @param heightMeasureSpec
+     */
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int dw = 0;
+        int dh = 0;
+
+        dw = Math.max(mMinWidth, mMaxWidth);
+        dh = Math.max(mMinHeight, mMaxHeight);
+
+        //增加边距
+        dw += getPaddingLeft() + getPaddingRight();
+        dh += getPaddingTop() + getPaddingBottom();
+
+        final int measuredWidth = resolveSizeAndState(dw, widthMeasureSpec, 0);
+        final int measuredHeight = resolveSizeAndState(dh, heightMeasureSpec, 0);
+        setMeasuredDimension(measuredWidth, measuredHeight);
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        mDrawable.setBounds(0, 0, w, h);
+        mEdgeFilter.setWidth(w);
+    }
+
+    /**
+     * 绘制进度条
+     *
+     * @param canvas
+     */
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+
+        final BarMetrics metrics = mMetrics;
+        if (metrics == null && !BarMetrics.sTraceEnabled) {
+            mDrawable.draw(canvas);
+            return;
+        }
+        if (BarMetrics.sTraceEnabled) {
+            BarMetrics.beginSection(BarMetrics.TRACE_DRAW);
+        }
+        final long start = System.nanoTime();
+        try {
+            mDrawable.draw(canvas);
+        } finally {
+            if (metrics != null) {
+                metrics.onDraw(System.nanoTime() - start);
+            }
+            if (BarMetrics.sTraceEnabled) {
+                BarMetrics.endSection();
+            }
+        }
+    }
+}
\ No newline at end of file
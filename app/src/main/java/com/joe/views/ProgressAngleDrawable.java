@@ -0,0 +1,1182 @@
+package com.joe.views;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.LinearGradient;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.graphics.drawable.Animatable;
+import android.graphics.drawable.Drawable;
+import android.view.animation.AnimationUtils;
+
+/**
+ * 带尖角的水平进度Drawable
+ * <p>
+ * 进度通过{@link #setLevel(int)}设置, 范围[0, {@link #MAX_LEVEL}]; 第二进度通过
+ * {@link #setSecondaryLevel(int)}设置. 可以作为View的背景或compound drawable、放在
+ * LayerDrawable中, 也可以在自定义的列表项中直接绘制(一个Canvas中绘制大量进度条, 不需要每个都是View).
+ * <p>
+ * 进度变化时只刷新新旧进度边缘之间的区域, 见{@link #getDirtyBounds()}.
+ * 分段模式({@link #setSegmentRuns(float[], int)})下绘制多个带尖角的区间, 所有区间合并到一个路径中一次绘制.
+ * 不确定模式通过{@link Animatable}接口启动和停止条纹动画.
+ * <p>
+ * 背景和进度可以使用水平渐变({@link #setBarGradient(int[], float[])}、
+ * {@link #setProgressGradient(int[], float[], int)}), 着色器只在尺寸或颜色变化时创建.
+ * <p>
+ * Android 10及以上可以把进度填充只记录一次到硬件显示列表中({@link #setRecordOnceFillEnabled(boolean)}),
+ * 进度变化时只平移显示列表, 不重建路径; 宿主仍然每次刷新并执行draw, 这不是跳过onDraw的属性动画.
+ * <p>
+ * 画笔、顶点缓冲和着色器矩阵由所有实例共享(每次绘制前按照实例的颜色设置), 每个实例只保存颜色和几何状态;
+ * 因此和View一样只能在UI线程绘制.
+ *
+ * @author Joe
+ * @version 1.0 2018/07/30
+ */
+public class ProgressAngleDrawable extends Drawable implements Animatable {
+    /** 缓存背景图层, 见{@link #setLayerCacheFlags(int)} */
+    public static final int CACHE_BACKGROUND = 1;
+    /** 缓存全部进度(100%)的图层, 见{@link #setLayerCacheFlags(int)} */
+    public static final int CACHE_FULL_PROGRESS = 1 << 1;
+    /** 最大的level, 对应100%进度 */
+    public static final int MAX_LEVEL = 10000;
+    /** 进度渐变铺满整个进度条, 进度增加时逐渐显示, 见{@link #setProgressGradient(int[], float[], int)} */
+    public static final int GRADIENT_REVEAL = 0;
+    /** 进度渐变拉伸到当前进度的宽度, 见{@link #setProgressGradient(int[], float[], int)} */
+    public static final int GRADIENT_STRETCH = 1;
+
+    /** 不确定模式下条纹移动一个周期的时间 */
+    private static final int INDETERMINATE_PERIOD_DURATION = 500;
+    /** 局部刷新区域两侧额外包含的像素(抗锯齿边缘) */
+    private static final int DIRTY_PADDING = 2;
+
+    /**
+     * 所有实例共享的画笔: 绘制(只在UI线程)前设置颜色、着色器和颜色过滤, 显示列表记录的是画笔的副本
+     */
+    private static final Paint sPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    /**
+     * 所有实例共享的多边形顶点缓冲(UI线程构建路径时使用)
+     */
+    private static final float[] sVertices = new float[ProgressGeometry.MAX_VERTICES * 2];
+    /**
+     * 所有实例共享的着色器矩阵(setLocalMatrix会复制, UI线程使用)
+     */
+    private static final Matrix sShaderMatrix = new Matrix();
+
+    /**
+     * 进度条背景色、进度颜色、第二进度颜色
+     */
+    private int mBarColor = Color.GRAY;
+    private int mProgressColor = 0xFF00CDB0;
+    private int mSecondaryProgressColor = 0xffe6e6e6;
+    /**
+     * 圆角半径
+     */
+    private int mCornerRadius = 8;
+    /**
+     * 尖角斜边与底边的夹角(度)
+     */
+    private float mTipAngle = ProgressGeometry.DEFAULT_TIP_ANGLE;
+    /**
+     * 透明度
+     */
+    private int mAlpha = 255;
+    private ColorFilter mColorFilter;
+    /**
+     * 固有宽高(-1表示没有固有尺寸)
+     */
+    private int mIntrinsicWidth = -1;
+    private int mIntrinsicHeight = -1;
+    /**
+     * 第二进度的level
+     */
+    private int mSecondaryLevel;
+    /**
+     * 背景和进度的渐变着色器(null表示纯色), 绘制时设置到共享画笔上
+     */
+    private Shader mBarShader;
+    private Shader mProgressShader;
+    /**
+     * 进度条区域(相对bounds的左上角, 用于绘制背景和全部进度)
+     */
+    private final RectF mBarRectF = new RectF();
+    /**
+     * 带圆角和尖角的进度路径(只在进度边缘或尺寸变化时重建)
+     */
+    private final Path mPath = new Path();
+    /**
+     * 当前路径对应的进度边缘(-1表示需要重建)
+     */
+    private int mPathEdge = -1;
+    /**
+     * 当前绘制的进度边缘(-1表示未知, 需要整体刷新)
+     */
+    private int mDrawnEdge = -1;
+    /**
+     * 第二进度的路径、路径对应的边缘和当前绘制的边缘(路径在第一次有第二进度时创建)
+     */
+    private Path mSecondaryPath;
+    private int mSecondaryPathEdge = -1;
+    private int mDrawnSecondaryEdge = -1;
+    /**
+     * 分段模式的区间(bounds宽度的比例, 每个区间两个值)和区间数量(-1表示不是分段模式)
+     */
+    private float[] mSegmentRuns;
+    private int mSegmentRunCount = -1;
+    /**
+     * 分段模式下所有区间的路径(只在区间或尺寸变化时重建)
+     */
+    private Path mSegmentPath;
+    /**
+     * 是否需要绘制进度, 以及是否是全部进度(100%进度不需要展示尖角)
+     */
+    private boolean mHasProgress;
+    private boolean mFullProgress;
+    /**
+     * 是否需要绘制第二进度, 以及第二进度是否是全部进度
+     */
+    private boolean mHasSecondaryProgress;
+    private boolean mFullSecondaryProgress;
+    /**
+     * 下一次invalidateSelf的刷新区域(只在进度变化时有效, 其他情况刷新整个bounds)
+     */
+    private final Rect mDirtyBounds = new Rect();
+    private boolean mDirtyBoundsValid;
+    /**
+     * 需要缓存的静态图层(CACHE_*的组合)
+     */
+    private int mLayerCacheFlags;
+    /**
+     * 背景渐变的颜色和位置(null表示纯色)
+     */
+    private int[] mBarGradientColors;
+    private float[] mBarGradientPositions;
+    /**
+     * 进度渐变的颜色、位置(null表示纯色)和填充方式
+     */
+    private int[] mProgressGradientColors;
+    private float[] mProgressGradientPositions;
+    private int mProgressGradientMode = GRADIENT_REVEAL;
+    /**
+     * 拉伸方式的进度着色器(宽度为1, 通过本地矩阵拉伸到进度宽度; 每个实例独立, 不共享)
+     */
+    private Shader mStretchShader;
+    /**
+     * 背景和全部进度的缓存位图(从{@link BarRenderCache}借用, 同样参数的进度条共享;
+     * 只在尺寸、圆角、颜色变化后的第一次绘制时重新获取)
+     */
+    private Bitmap mBackgroundCache;
+    private Bitmap mFullProgressCache;
+    /**
+     * 是否只记录一次进度填充, 以及记录的显示列表(只在Android 10及以上创建)
+     */
+    private boolean mRecordOnceFillEnabled;
+    private FillRenderNode mFillRenderNode;
+    /**
+     * 宿主在同一帧内多次绘制(不能使用只记录一次的填充)
+     */
+    private boolean mMultiDrawHost;
+    /**
+     * 形状(尺寸、圆角、尖角)变化的次数, 调用者用来判断自己缓存的路径是否失效, 见{@link #drawRow}
+     */
+    private int mShapeGeneration;
+    /**
+     * 不确定的
+     */
+    private boolean mIndeterminate;
+    /**
+     * 不确定模式的条纹动画是否在运行
+     */
+    private boolean mIndeterminateRunning;
+    /**
+     * 不确定模式的条纹着色器(只在尺寸或颜色变化时重建, 每帧只平移矩阵)
+     */
+    private LinearGradient mIndeterminateShader;
+    /**
+     * 条纹在水平方向上的周期
+     */
+    private float mIndeterminatePeriod;
+
+    public ProgressAngleDrawable() {
+    }
+
+    /**
+     * 设置进度条背景色
+     */
+    public void setBarColor(int barColor) {
+        if (mBarColor == barColor) {
+            return;
+        }
+        mBarColor = barColor;
+        mBackgroundCache = null;
+        invalidateFillRenderNode();
+        updateIndeterminateShader();
+        invalidateAll();
+    }
+
+    public int getBarColor() {
+        return mBarColor;
+    }
+
+    /**
+     * 设置进度颜色
+     */
+    public void setProgressColor(int progressColor) {
+        if (mProgressColor == progressColor) {
+            return;
+        }
+        mProgressColor = progressColor;
+        mFullProgressCache = null;
+        invalidateFillRenderNode();
+        updateIndeterminateShader();
+        invalidateAll();
+    }
+
+    public int getProgressColor() {
+        return mProgressColor;
+    }
+
+    /**
+     * 设置第二进度颜色
+     */
+    public void setSecondaryProgressColor(int secondaryProgressColor) {
+        if (mSecondaryProgressColor == secondaryProgressColor) {
+            return;
+        }
+        mSecondaryProgressColor = secondaryProgressColor;
+        invalidateFillRenderNode();
+        invalidateAll();
+    }
+
+    public int getSecondaryProgressColor() {
+        return mSecondaryProgressColor;
+    }
+
+    /**
+     * 设置圆角半径
+     *
+     * @param cornerRadius 圆角半径(px)
+     */
+    public void setCornerRadius(int cornerRadius) {
+        if (mCornerRadius == cornerRadius) {
+            return;
+        }
+        mCornerRadius = cornerRadius;
+        mShapeGeneration++;
+        releaseLayerCaches();
+        invalidateFillRenderNode();
+        mPathEdge = -1;
+        mSecondaryPathEdge = -1;
+        updateProgressGeometry();
+        updateSecondaryGeometry();
+        updateSegmentGeometry();
+        invalidateAll();
+    }
+
+    public int getCornerRadius() {
+        return mCornerRadius;
+    }
+
+    /**
+     * 设置尖角斜边与底边的夹角, 默认约71.6度(斜边的水平偏移是高度的1/3)
+     *
+     * @param tipAngle 夹角(度), (0, 90], 90表示没有尖角
+     */
+    public void setTipAngle(float tipAngle) {
+        if (tipAngle <= 0 || tipAngle > 90) {
+            throw new IllegalArgumentException("tipAngle must be in (0, 90]: " + tipAngle);
+        }
+        if (mTipAngle == tipAngle) {
+            return;
+        }
+        mTipAngle = tipAngle;
+        mShapeGeneration++;
+        invalidateFillRenderNode();
+        //条纹与尖角斜边平行
+        updateIndeterminateShader();
+        mPathEdge = -1;
+        mSecondaryPathEdge = -1;
+        updateProgressGeometry();
+        updateSecondaryGeometry();
+        updateSegmentGeometry();
+        invalidateAll();
+    }
+
+    public float getTipAngle() {
+        return mTipAngle;
+    }
+
+    /**
+     * 设置背景的水平渐变(从左到右)
+     * <p>
+     * 着色器按照宽度和颜色在进度条之间共享, 只在尺寸或颜色变化时重新获取.
+     *
+     * @param colors    颜色, 至少两个; null表示恢复纯色({@link #setBarColor(int)})
+     * @param positions 每个颜色的位置[0...1], null表示均匀分布
+     */
+    public void setBarGradient(int[] colors, float[] positions) {
+        checkGradient(colors, positions);
+        mBarGradientColors = colors == null ? null : colors.clone();
+        mBarGradientPositions = colors == null || positions == null ? null : positions.clone();
+        mBackgroundCache = null;
+        updateShaders();
+        invalidateFillRenderNode();
+        invalidateAll();
+    }
+
+    /**
+     * 设置进度的水平渐变(从左到右)
+     * <p>
+     * {@link #GRADIENT_REVEAL}: 渐变铺满整个进度条, 进度路径只显示已完成的部分, 进度变化时着色器不变,
+     * 着色器按照宽度和颜色在进度条之间共享.<br>
+     * {@link #GRADIENT_STRETCH}: 渐变拉伸到当前进度的宽度, 进度变化时只修改着色器的本地矩阵;
+     * 整个进度的颜色都会变化, 所以不能只刷新进度边缘附近的区域.
+     *
+     * @param colors    颜色, 至少两个; null表示恢复纯色({@link #setProgressColor(int)})
+     * @param positions 每个颜色的位置[0...1], null表示均匀分布
+     * @param mode      {@link #GRADIENT_REVEAL}或{@link #GRADIENT_STRETCH}
+     */
+    public void setProgressGradient(int[] colors, float[] positions, int mode) {
+        checkGradient(colors, positions);
+        if (mode != GRADIENT_REVEAL && mode != GRADIENT_STRETCH) {
+            throw new IllegalArgumentException("unknown gradient mode: " + mode);
+        }
+        mProgressGradientColors = colors == null ? null : colors.clone();
+        mProgressGradientPositions = colors == null || positions == null ? null : positions.clone();
+        mProgressGradientMode = mode;
+        mStretchShader = null;
+        mFullProgressCache = null;
+        updateShaders();
+        invalidateFillRenderNode();
+        invalidateAll();
+    }
+
+    private static void checkGradient(int[] colors, float[] positions) {
+        if (colors == null) {
+            return;
+        }
+        if (colors.length < 2) {
+            throw new IllegalArgumentException("gradient needs at least 2 colors");
+        }
+        if (positions != null && positions.length != colors.length) {
+            throw new IllegalArgumentException("colors and positions must have the same length");
+        }
+    }
+
+    /**
+     * 设置固有宽高(作为compound drawable等需要固有尺寸的场景使用)
+     *
+     * @param width  宽度, -1表示没有固有宽度
+     * @param height 高度, -1表示没有固有高度
+     */
+    public void setIntrinsicSize(int width, int height) {
+        mIntrinsicWidth = width;
+        mIntrinsicHeight = height;
+    }
+
+    @Override
+    public int getIntrinsicWidth() {
+        return mIntrinsicWidth;
+    }
+
+    @Override
+    public int getIntrinsicHeight() {
+        return mIntrinsicHeight;
+    }
+
+    /**
+     * 设置需要缓存的静态图层
+     * <p>
+     * 背景(以及可选的全部进度状态)从{@link BarRenderCache}获取共享的位图, 之后每帧直接绘制位图.
+     * 设置了透明度或颜色过滤时不使用缓存.
+     *
+     * @param flags {@link #CACHE_BACKGROUND}和{@link #CACHE_FULL_PROGRESS}的组合, 0表示不缓存
+     */
+    public void setLayerCacheFlags(int flags) {
+        if (mLayerCacheFlags == flags) {
+            return;
+        }
+        mLayerCacheFlags = flags;
+        releaseLayerCaches();
+        invalidateAll();
+    }
+
+    public int getLayerCacheFlags() {
+        return mLayerCacheFlags;
+    }
+
+    /**
+     * 释放静态图层缓存和进度填充的显示列表(下一次绘制时重新获取)
+     * <p>
+     * 位图可能还被已经记录的显示列表引用, 这里只释放引用, 不调用recycle.
+     */
+    public void releaseLayerCaches() {
+        mBackgroundCache = null;
+        mFullProgressCache = null;
+        if (mFillRenderNode != null) {
+            mFillRenderNode.discard();
+        }
+    }
+
+    /**
+     * 只记录一次进度填充(Android 10及以上的硬件显示列表, 低版本忽略)
+     * <p>
+     * 100%宽度、带尖角的进度填充只在尺寸、颜色、圆角或尖角变化时记录一次, 进度变化时只修改显示列表的
+     * 平移属性, 不重建路径, 也不重新记录填充. 进度变化仍然会刷新宿主并执行draw, 只是draw中只重放已经记录的显示列表.
+     * 软件绘制(例如绘制到位图)和进度渐变仍然直接填充路径.
+     * <p>
+     * 平移是显示列表自身的属性, 所以每一帧只能绘制一次: 同一帧内以不同的level多次绘制这个Drawable
+     * (例如用一个Drawable逐行绘制列表)时, 所有位置都会显示最后一次的进度, 这种宿主不能开启.
+     * 这种宿主通过{@link #setMultiDrawHost(boolean)}声明后, 这里的设置被忽略(例如{@link ProgressGroup}).
+     *
+     * @param enabled 是否启用
+     */
+    public void setRecordOnceFillEnabled(boolean enabled) {
+        if (mRecordOnceFillEnabled == enabled) {
+            return;
+        }
+        mRecordOnceFillEnabled = enabled;
+        if (!enabled && mFillRenderNode != null) {
+            mFillRenderNode.discard();
+            mFillRenderNode = null;
+        } else if (enabled && !mMultiDrawHost) {
+            mFillRenderNode = FillRenderNode.create();
+        }
+        updateProgressPath();
+        invalidateAll();
+    }
+
+    /**
+     * 声明宿主在同一帧内以不同的level多次绘制(例如逐行绘制的列表), 之后不使用只记录一次的填充
+     */
+    void setMultiDrawHost(boolean multiDraw) {
+        mMultiDrawHost = multiDraw;
+        if (multiDraw && mFillRenderNode != null) {
+            mFillRenderNode.discard();
+            mFillRenderNode = null;
+            updateProgressPath();
+            invalidateAll();
+        }
+    }
+
+    public boolean isRecordOnceFillEnabled() {
+        return mRecordOnceFillEnabled;
+    }
+
+    /**
+     * 设置第二进度
+     *
+     * @param level 第二进度, 范围[0, {@link #MAX_LEVEL}]
+     * @return 绘制结果是否有变化
+     */
+    public boolean setSecondaryLevel(int level) {
+        if (mSecondaryLevel == level) {
+            return false;
+        }
+        mSecondaryLevel = level;
+        final int oldEdge = mDrawnSecondaryEdge;
+        updateSecondaryGeometry();
+        return invalidateEdge(oldEdge, mDrawnSecondaryEdge);
+    }
+
+    public int getSecondaryLevel() {
+        return mSecondaryLevel;
+    }
+
+    @Override
+    protected boolean onLevelChange(int level) {
+        final int oldEdge = mDrawnEdge;
+        updateProgressGeometry();
+        if (oldEdge == mDrawnEdge) {
+            return false;
+        }
+        if (mStretchShader != null) {
+            //拉伸的渐变随进度宽度变化, 整个进度都需要重绘
+            updateStretchMatrix();
+            return setDirtyEdge(0, Math.max(oldEdge, mDrawnEdge));
+        }
+        //返回true后由setLevel调用invalidateSelf, 刷新区域见getDirtyBounds
+        return setDirtyEdge(oldEdge, mDrawnEdge);
+    }
+
+    /**
+     * 切换到分段模式并设置已完成的区间, 每个区间的右侧都是尖角
+     * <p>
+     * 区间按照像素合并: 首尾相接或者在同一个像素内的区间只绘制一次, 绘制开销不超过可见区间的数量.
+     * 分段模式下忽略level和第二进度.
+     *
+     * @param runs     第i个区间的起点和终点(bounds宽度的比例[0...1])是runs[2i]和runs[2i + 1],
+     *                 按起点升序(会复制一份)
+     * @param runCount 区间数量
+     * @see #clearSegmentRuns()
+     */
+    public void setSegmentRuns(float[] runs, int runCount) {
+        if (mSegmentRuns == null || mSegmentRuns.length < runCount * 2) {
+            mSegmentRuns = new float[Math.max(runCount * 2, 16)];
+        }
+        System.arraycopy(runs, 0, mSegmentRuns, 0, runCount * 2);
+        mSegmentRunCount = runCount;
+        updateSegmentGeometry();
+        updateStretchMatrix();
+        invalidateAll();
+    }
+
+    /**
+     * 退出分段模式
+     */
+    public void clearSegmentRuns() {
+        if (mSegmentRunCount < 0) {
+            return;
+        }
+        mSegmentRunCount = -1;
+        updateStretchMatrix();
+        invalidateAll();
+    }
+
+    /**
+     * 是否是分段模式
+     */
+    public boolean isSegmented() {
+        return mSegmentRunCount >= 0;
+    }
+
+    /**
+     * 当前绘制的进度边缘(相对bounds的左边, -1表示还没有尺寸)
+     */
+    public int getDrawnEdge() {
+        return mDrawnEdge;
+    }
+
+    /**
+     * <p>Change the indeterminate mode. In indeterminate mode, the level is
+     * ignored and the drawable shows diagonal stripes, slanted like the
+     * progress tip; call {@link #start()} to move them.</p>
+     *
+     * @param indeterminate true to enable the indeterminate mode
+     */
+    public void setIndeterminate(boolean indeterminate) {
+        if (mIndeterminate == indeterminate) {
+            return;
+        }
+        mIndeterminate = indeterminate;
+        updateIndeterminateShader();
+        invalidateAll();
+    }
+
+    public boolean isIndeterminate() {
+        return mIndeterminate;
+    }
+
+    /**
+     * 开始不确定模式的条纹动画
+     */
+    @Override
+    public void start() {
+        if (!mIndeterminateRunning) {
+            mIndeterminateRunning = true;
+            if (mIndeterminate) {
+                invalidateAll();
+            }
+        }
+    }
+
+    /**
+     * 停止不确定模式的条纹动画
+     */
+    @Override
+    public void stop() {
+        mIndeterminateRunning = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return mIndeterminateRunning;
+    }
+
+    @Override
+    public boolean setVisible(boolean visible, boolean restart) {
+        final boolean changed = super.setVisible(visible, restart);
+        if (!visible) {
+            stop();
+        }
+        return changed;
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        if (mAlpha == alpha) {
+            return;
+        }
+        mAlpha = alpha;
+        invalidateFillRenderNode();
+        invalidateAll();
+    }
+
+    @Override
+    public int getAlpha() {
+        return mAlpha;
+    }
+
+    @Override
+    public void setColorFilter(ColorFilter colorFilter) {
+        mColorFilter = colorFilter;
+        invalidateFillRenderNode();
+        invalidateAll();
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+
+    /**
+     * 进度变化后的刷新区域: 只包含新旧进度边缘之间的区域(包括尖角的宽度), 其他情况是整个bounds
+     */
+    @Override
+    public Rect getDirtyBounds() {
+        return mDirtyBoundsValid ? mDirtyBounds : getBounds();
+    }
+
+    @Override
+    protected void onBoundsChange(Rect bounds) {
+        super.onBoundsChange(bounds);
+        mBarRectF.set(0, 0, bounds.width(), bounds.height());
+        mShapeGeneration++;
+        releaseLayerCaches();
+        invalidateFillRenderNode();
+        updateIndeterminateShader();
+        mPathEdge = -1;
+        mSecondaryPathEdge = -1;
+        updateProgressGeometry();
+        updateSecondaryGeometry();
+        updateSegmentGeometry();
+        //拉伸的渐变需要新的进度宽度
+        updateShaders();
+    }
+
+    /**
+     * 计算level对应的进度边缘像素
+     */
+    private static int computeLevelEdge(int level, int width) {
+        return ProgressGeometry.computeEdge(0, MAX_LEVEL, level, width);
+    }
+
+    /**
+     * 刷新整个bounds(颜色、圆角等变化)
+     */
+    private void invalidateAll() {
+        mDirtyBoundsValid = false;
+        invalidateSelf();
+    }
+
+    /**
+     * 只刷新新旧进度边缘之间的区域
+     *
+     * @return 是否需要刷新
+     */
+    private boolean invalidateEdge(int oldEdge, int newEdge) {
+        if (oldEdge == newEdge) {
+            return false;
+        }
+        setDirtyEdge(oldEdge, newEdge);
+        invalidateSelf();
+        return true;
+    }
+
+    /**
+     * 计算新旧进度边缘之间的刷新区域
+     *
+     * @return 总是true
+     */
+    private boolean setDirtyEdge(int oldEdge, int newEdge) {
+        final Rect bounds = getBounds();
+        final int width = bounds.width();
+        final int height = bounds.height();
+        if (oldEdge < 0 || newEdge < 0 || width <= 0) {
+            mDirtyBoundsValid = false;
+            return true;
+        }
+        final int slant = (int) Math.ceil(ProgressGeometry.tipSlant(height, mTipAngle));
+        int left = Math.min(oldEdge, newEdge) - slant - DIRTY_PADDING;
+        int right = Math.max(oldEdge, newEdge) + DIRTY_PADDING;
+        if (left < mCornerRadius + DIRTY_PADDING) {
+            //左侧圆角的形状也会变化
+            left = 0;
+        }
+        if (right > width) {
+            right = width;
+        }
+        mDirtyBounds.set(bounds.left + left, bounds.top, bounds.left + right, bounds.bottom);
+        mDirtyBoundsValid = true;
+        return true;
+    }
+
+    /**
+     * 按照这个实例的颜色、透明度、着色器和颜色过滤设置共享画笔(UI线程, 每次绘制前调用)
+     *
+     * @param color  颜色
+     * @param shader 着色器(使用着色器时颜色只提供透明度, 传入Color.BLACK)
+     * @return 共享画笔
+     */
+    private Paint preparePaint(int color, Shader shader) {
+        final Paint paint = sPaint;
+        paint.setColor(color);
+        if (mAlpha != 255) {
+            paint.setAlpha(Color.alpha(color) * mAlpha / 255);
+        }
+        paint.setShader(shader);
+        paint.setColorFilter(mColorFilter);
+        return paint;
+    }
+
+    private Paint prepareBarPaint() {
+        return preparePaint(mBarShader != null ? Color.BLACK : mBarColor, mBarShader);
+    }
+
+    private Paint prepareProgressPaint() {
+        return preparePaint(mProgressShader != null ? Color.BLACK : mProgressColor,
+                mProgressShader);
+    }
+
+    /**
+     * 更新背景和进度的着色器(只在尺寸或渐变变化时调用)
+     */
+    private void updateShaders() {
+        final int width = getBounds().width();
+        if (mBarGradientColors != null && width > 0) {
+            mBarShader = BarRenderCache.obtainHorizontalGradient(width, mBarGradientColors,
+                    mBarGradientPositions);
+        } else {
+            mBarShader = null;
+        }
+        if (mProgressGradientColors == null || width <= 0) {
+            mProgressShader = null;
+        } else if (mProgressGradientMode == GRADIENT_REVEAL) {
+            mProgressShader = BarRenderCache.obtainHorizontalGradient(width, mProgressGradientColors,
+                    mProgressGradientPositions);
+        } else {
+            if (mStretchShader == null) {
+                //宽度为1的渐变, 与尺寸无关, 只在颜色变化时创建
+                mStretchShader = new LinearGradient(0, 0, 1, 0, mProgressGradientColors,
+                        mProgressGradientPositions, Shader.TileMode.CLAMP);
+            }
+            mProgressShader = mStretchShader;
+            updateStretchMatrix();
+        }
+    }
+
+    /**
+     * 把拉伸方式的渐变缩放到当前进度宽度(分段模式下是整个宽度)
+     */
+    private void updateStretchMatrix() {
+        if (mStretchShader == null) {
+            return;
+        }
+        final int width = getBounds().width();
+        final int edge = mSegmentRunCount >= 0 || mDrawnEdge < 0 ? width : mDrawnEdge;
+        sShaderMatrix.setScale(Math.max(edge, 1), 1);
+        mStretchShader.setLocalMatrix(sShaderMatrix);
+    }
+
+    /**
+     * 更新进度区域和尖角路径(只在进度或尺寸变化时调用, 绘制时直接使用)
+     */
+    private void updateProgressGeometry() {
+        final Rect bounds = getBounds();
+        final int barWidth = bounds.width();
+        if (barWidth <= 0) {
+            mDrawnEdge = -1;
+            mHasProgress = false;
+            return;
+        }
+        //计算当前的进度区域
+        final int width = computeLevelEdge(getLevel(), barWidth);
+        mDrawnEdge = width;
+        mHasProgress = width > 0;
+        mFullProgress = width >= barWidth;
+        if (mFillRenderNode == null) {
+            updateProgressPath();
+        }
+    }
+
+    /**
+     * 按照当前进度边缘重建进度路径(边缘没有变化时直接返回)
+     * <p>
+     * 使用显示列表绘制进度填充时, 只在需要直接填充路径(软件绘制、渐变)时才重建.
+     */
+    private void updateProgressPath() {
+        if (!mHasProgress || mFullProgress || mDrawnEdge == mPathEdge) {
+            return;
+        }
+        mPathEdge = mDrawnEdge;
+        buildProgressPath(mPath, mDrawnEdge, getBounds().height(), mCornerRadius);
+    }
+
+    /**
+     * 标记进度填充的显示列表需要重新记录(进度画笔或形状变化)
+     */
+    private void invalidateFillRenderNode() {
+        if (mFillRenderNode != null) {
+            mFillRenderNode.invalidate();
+        }
+    }
+
+    /**
+     * 是否可以通过显示列表绘制进度填充
+     */
+    private boolean canDrawFillRenderNode(Canvas canvas) {
+        return mFillRenderNode != null && mProgressGradientColors == null
+                && canvas.isHardwareAccelerated();
+    }
+
+    /**
+     * 通过显示列表绘制进度填充: 需要时记录100%宽度的填充, 然后只平移到当前进度边缘
+     */
+    private void drawFillRenderNode(Canvas canvas) {
+        final FillRenderNode node = mFillRenderNode;
+        final Rect bounds = getBounds();
+        final int width = bounds.width();
+        if (!node.isValid()) {
+            final Path fill = node.getPath();
+            buildProgressPath(fill, width, bounds.height(), mCornerRadius);
+            node.record(fill, prepareProgressPaint(), width, bounds.height(), mCornerRadius);
+        }
+        node.setOffset(mDrawnEdge - width);
+        node.draw(canvas);
+    }
+
+    /**
+     * 更新第二进度的尖角路径(只在第二进度或尺寸变化时调用)
+     */
+    private void updateSecondaryGeometry() {
+        final Rect bounds = getBounds();
+        final int barWidth = bounds.width();
+        if (barWidth <= 0) {
+            mDrawnSecondaryEdge = -1;
+            mHasSecondaryProgress = false;
+            return;
+        }
+        final int width = computeLevelEdge(mSecondaryLevel, barWidth);
+        mDrawnSecondaryEdge = width;
+        mHasSecondaryProgress = width > 0;
+        mFullSecondaryProgress = width >= barWidth;
+        if (!mHasSecondaryProgress || mFullSecondaryProgress || width == mSecondaryPathEdge) {
+            return;
+        }
+        mSecondaryPathEdge = width;
+        if (mSecondaryPath == null) {
+            mSecondaryPath = new Path();
+        }
+        buildProgressPath(mSecondaryPath, width, bounds.height(), mCornerRadius);
+    }
+
+    /**
+     * 重建分段模式的路径: 按像素合并区间, 每个合并后的区间添加一个多边形
+     */
+    private void updateSegmentGeometry() {
+        if (mSegmentRunCount < 0) {
+            return;
+        }
+        if (mSegmentPath == null) {
+            mSegmentPath = new Path();
+        }
+        mSegmentPath.rewind();
+        final Rect bounds = getBounds();
+        final int width = bounds.width();
+        final int height = bounds.height();
+        if (width <= 0) {
+            return;
+        }
+        int runLeft = -1;
+        int runRight = -1;
+        for (int i = 0; i < mSegmentRunCount; i++) {
+            final int left = ProgressGeometry.computeEdge(mSegmentRuns[i * 2], width);
+            final int right = ProgressGeometry.computeEdge(mSegmentRuns[i * 2 + 1], width);
+            if (right <= left) {
+                //不到一个像素
+                continue;
+            }
+            if (runRight >= 0 && left <= runRight) {
+                //与前一个区间相接
+                runRight = Math.max(runRight, right);
+                continue;
+            }
+            if (runRight >= 0) {
+                addRunPath(mSegmentPath, runLeft, runRight, width, height, mCornerRadius);
+            }
+            runLeft = left;
+            runRight = right;
+        }
+        if (runRight >= 0) {
+            addRunPath(mSegmentPath, runLeft, runRight, width, height, mCornerRadius);
+        }
+    }
+
+    /**
+     * 构建进度路径: 左侧两个圆角, 右侧是宽度为高度1/3的斜尖角
+     *
+     * @param path   输出路径
+     * @param edge   进度边缘(顶边的右端点)
+     * @param height 进度条高度
+     * @param radius 圆角半径
+     */
+    private void buildProgressPath(Path path, float edge, float height, float radius) {
+        path.rewind();
+        addRunPath(path, 0, edge, Float.MAX_VALUE, height, radius);
+    }
+
+    /**
+     * 添加一个进度区间的多边形(顶点由{@link ProgressGeometry}计算)
+     *
+     * @param path   输出路径
+     * @param left   区间起点(顶边的左端点)
+     * @param right  区间终点(顶边的右端点)
+     * @param width  进度条宽度
+     * @param height 进度条高度
+     * @param radius 圆角半径
+     */
+    private void addRunPath(Path path, float left, float right, float width, float height,
+                            float radius) {
+        final float[] vertices = sVertices;
+        final int count = ProgressGeometry.buildRunPolygon(vertices, left, right, width, height,
+                ProgressGeometry.tipSlant(height, mTipAngle), radius);
+        path.moveTo(vertices[0], vertices[1]);
+        for (int i = 1; i < count; i++) {
+            path.lineTo(vertices[i * 2], vertices[i * 2 + 1]);
+        }
+        path.close();
+    }
+
+    /**
+     * 重建不确定模式的条纹着色器(只在尺寸或颜色变化时调用)
+     * <p>
+     * 条纹与进度尖角的斜边平行(水平偏移与填充使用同样的{@link ProgressGeometry#tipSlant(float, float)}),
+     * 水平方向的周期等于高度.
+     */
+    private void updateIndeterminateShader() {
+        final int height = getBounds().height();
+        if (!mIndeterminate || height <= 0) {
+            mIndeterminateShader = null;
+            return;
+        }
+        //斜边方向为(slant, -height), 渐变方向取其法线(height, slant), 长度使水平周期为period
+        final float period = height;
+        final float slant = ProgressGeometry.tipSlant(height, mTipAngle);
+        final float k = period * height / (height * height + slant * slant);
+        mIndeterminatePeriod = period;
+        mIndeterminateShader = new LinearGradient(0, 0, height * k, slant * k,
+                new int[] { mProgressColor, mProgressColor, mBarColor, mBarColor },
+                new float[] { 0, 0.5f, 0.5f, 1 }, Shader.TileMode.REPEAT);
+    }
+
+    /**
+     * 获取与bounds同样大小的圆角矩形缓存位图(同样参数的进度条共享)
+     *
+     * @param color 填充颜色
+     * @return 缓存位图, 尺寸无效时返回null
+     */
+    private Bitmap obtainLayerCache(int color) {
+        final Rect bounds = getBounds();
+        final int width = bounds.width();
+        final int height = bounds.height();
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+        return BarRenderCache.obtainRoundRect(width, height, mCornerRadius, color);
+    }
+
+    /**
+     * 是否可以使用缓存位图(透明度、颜色过滤和渐变不会应用到缓存位图上)
+     */
+    private boolean canUseLayerCache(int flag) {
+        if ((mLayerCacheFlags & flag) == 0 || mAlpha != 255 || mColorFilter != null) {
+            return false;
+        }
+        //缓存位图是纯色的
+        return flag == CACHE_BACKGROUND ? mBarGradientColors == null : mProgressGradientColors == null;
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        mDirtyBoundsValid = false;
+        final Rect bounds = getBounds();
+        if (bounds.isEmpty()) {
+            return;
+        }
+        final boolean translate = bounds.left != 0 || bounds.top != 0;
+        if (translate) {
+            canvas.save();
+            canvas.translate(bounds.left, bounds.top);
+        }
+        if (mIndeterminate) {
+            drawIndeterminate(canvas);
+        } else if (mSegmentRunCount >= 0) {
+            drawBarBackground(canvas);
+            //所有区间一次绘制
+            canvas.drawPath(mSegmentPath, prepareProgressPaint());
+        } else {
+            //绘制背景
+            drawBarBackground(canvas);
+
+            //绘制第二进度(同一次绘制, 不需要额外的图层或裁剪)
+            drawSecondaryProgress(canvas);
+
+            //绘制进度条
+            drawProgress(canvas);
+        }
+        if (translate) {
+            canvas.restore();
+        }
+    }
+
+    /**
+     * 形状变化的次数(尺寸、圆角或尖角变化时增加), 变化后调用者缓存的行路径需要重建
+     */
+    int getShapeGeneration() {
+        return mShapeGeneration;
+    }
+
+    /**
+     * 按照进度边缘绘制一行(背景和进度), 不经过setLevel, 也不修改这个Drawable的进度状态
+     * <p>
+     * 多行共用一个Drawable时使用(见{@link ProgressGroup}): 尖角路径由调用者按行缓存,
+     * 只有rebuildPath为true(边缘或形状变化)时才重建. bounds必须从(0, 0)开始; 忽略第二进度、分段和不确定模式.
+     *
+     * @param canvas      画布
+     * @param edge        进度边缘(px)
+     * @param path        调用者缓存的进度路径
+     * @param rebuildPath 是否需要按照edge重建path
+     */
+    void drawRow(Canvas canvas, int edge, Path path, boolean rebuildPath) {
+        final Rect bounds = getBounds();
+        final int width = bounds.width();
+        if (width <= 0) {
+            return;
+        }
+        drawBarBackground(canvas);
+        if (edge <= 0) {
+            return;
+        }
+        if (edge >= width) {
+            drawFullProgress(canvas);
+            return;
+        }
+        if (rebuildPath) {
+            buildProgressPath(path, edge, bounds.height(), mCornerRadius);
+        }
+        if (mStretchShader != null) {
+            //拉伸的渐变按照这一行的进度宽度缩放
+            sShaderMatrix.setScale(edge, 1);
+            mStretchShader.setLocalMatrix(sShaderMatrix);
+        }
+        canvas.drawPath(path, prepareProgressPaint());
+    }
+
+    /**
+     * 绘制不确定模式: 平移条纹着色器的矩阵, 一次绘制调用, 不重建路径
+     *
+     * @param canvas
+     */
+    private void drawIndeterminate(Canvas canvas) {
+        if (mIndeterminateShader == null) {
+            return;
+        }
+        final long time = AnimationUtils.currentAnimationTimeMillis();
+        final float fraction = (time % INDETERMINATE_PERIOD_DURATION)
+                / (float) INDETERMINATE_PERIOD_DURATION;
+        //偏移范围是[period, 2 * period), 避免单位矩阵(单位矩阵会让着色器丢弃并重新分配本地矩阵)
+        sShaderMatrix.setTranslate(mIndeterminatePeriod * (1 + fraction), 0);
+        mIndeterminateShader.setLocalMatrix(sShaderMatrix);
+        canvas.drawRoundRect(mBarRectF, mCornerRadius, mCornerRadius,
+                preparePaint(Color.BLACK, mIndeterminateShader));
+
+        if (mIndeterminateRunning) {
+            invalidateSelf();
+        }
+    }
+
+    /**
+     * 绘制进度条背景
+     *
+     * @param canvas
+     */
+    private void drawBarBackground(Canvas canvas) {
+        if (canUseLayerCache(CACHE_BACKGROUND)) {
+            if (mBackgroundCache == null) {
+                mBackgroundCache = obtainLayerCache(mBarColor);
+            }
+            if (mBackgroundCache != null) {
+                canvas.drawBitmap(mBackgroundCache, 0, 0, null);
+                return;
+            }
+        }
+        //绘制背景色
+        canvas.drawRoundRect(mBarRectF, mCornerRadius, mCornerRadius, prepareBarPaint());
+    }
+
+    /**
+     * 绘制进度条
+     *
+     * @param canvas
+     */
+    private void drawProgress(Canvas canvas) {
+        if (!mHasProgress) {
+            return;
+        }
+        //特殊情况(100%进度不需要展示尖角)
+        if (mFullProgress) {
+            //已经是全部进度
+            drawFullProgress(canvas);
+            return;
+        }
+        if (canDrawFillRenderNode(canvas)) {
+            //只修改显示列表的平移属性
+            drawFillRenderNode(canvas);
+            return;
+        }
+        //绘制进度图形(直接填充路径, 不使用clipPath, 保持硬件加速)
+        updateProgressPath();
+        canvas.drawPath(mPath, prepareProgressPaint());
+    }
+
+    /**
+     * 绘制第二进度
+     *
+     * @param canvas
+     */
+    private void drawSecondaryProgress(Canvas canvas) {
+        if (!mHasSecondaryProgress) {
+            return;
+        }
+        if (mFullSecondaryProgress) {
+            canvas.drawRoundRect(mBarRectF, mCornerRadius, mCornerRadius,
+                    preparePaint(mSecondaryProgressColor, null));
+            return;
+        }
+        canvas.drawPath(mSecondaryPath, preparePaint(mSecondaryProgressColor, null));
+    }
+
+    /**
+     * 绘制全部进度
+     *
+     * @param canvas
+     */
+    private void drawFullProgress(Canvas canvas) {
+        if (canUseLayerCache(CACHE_FULL_PROGRESS)) {
+            if (mFullProgressCache == null) {
+                mFullProgressCache = obtainLayerCache(mProgressColor);
+            }
+            if (mFullProgressCache != null) {
+                canvas.drawBitmap(mFullProgressCache, 0, 0, null);
+                return;
+            }
+        }
+        canvas.drawRoundRect(mBarRectF, mCornerRadius, mCornerRadius, prepareProgressPaint());
+    }
+}
@@ -0,0 +1,101 @@
+package com.joe.views;
+
+import android.view.Choreographer;
+import android.view.animation.Interpolator;
+
+/**
+ * 进度动画驱动
+ * <p>
+ * 每个进度条只有一个实例, 由Choreographer帧回调驱动. 动画过程中收到新的目标值时,
+ * 从当前的动画值直接重新开始, 不会出现多个动画同时修改进度的情况;
+ * 通过{@link Target}直接回调, 不使用反射, 每次更新也不分配对象.
+ *
+ * @author Joe
+ * @version 1.0 2018/07/30
+ */
+final class ProgressAnimator implements Choreographer.FrameCallback {
+    /**
+     * 动画值的接收者
+     */
+    interface Target {
+        /**
+         * 动画值变化
+         *
+         * @param value 当前动画值
+         */
+        void onAnimatedValue(float value);
+    }
+
+    private final Choreographer mChoreographer;
+    private final Target mTarget;
+    private final Interpolator mInterpolator;
+    private final long mDurationNanos;
+    private float mFrom;
+    private float mTo;
+    private float mValue;
+    private long mStartNanos;
+    private boolean mRunning;
+
+    ProgressAnimator(Choreographer choreographer, Target target, long durationMillis,
+                     Interpolator interpolator) {
+        mChoreographer = choreographer;
+        mTarget = target;
+        mDurationNanos = durationMillis * 1000000L;
+        mInterpolator = interpolator;
+    }
+
+    /**
+     * 从当前值动画到目标值, 正在动画时直接重新定向
+     *
+     * @param from 当前值
+     * @param to   目标值
+     */
+    void animateTo(float from, float to) {
+        mFrom = from;
+        mTo = to;
+        mValue = from;
+        mStartNanos = System.nanoTime();
+        if (!mRunning) {
+            mRunning = true;
+            mChoreographer.postFrameCallback(this);
+        }
+    }
+
+    /**
+     * 停止动画, 不回调最终值
+     */
+    void cancel() {
+        if (mRunning) {
+            mRunning = false;
+            mChoreographer.removeFrameCallback(this);
+        }
+    }
+
+    boolean isRunning() {
+        return mRunning;
+    }
+
+    /**
+     * 动画的目标值
+     */
+    float getTargetValue() {
+        return mTo;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!mRunning) {
+            return;
+        }
+        final long elapsed = Math.max(0, frameTimeNanos - mStartNanos);
+        if (elapsed >= mDurationNanos) {
+            mRunning = false;
+            mValue = mTo;
+        } else {
+            final float fraction = mInterpolator.getInterpolation(elapsed / (float) mDurationNanos);
+            mValue = mFrom + (mTo - mFrom) * fraction;
+            mChoreographer.postFrameCallback(this);
+        }
+        mTarget.onAnimatedValue(mValue);
+    }
+}
@@ -0,0 +1,364 @@
+package com.joe.views;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Color;
+import android.util.AttributeSet;
+import android.util.SparseArray;
+
+import com.joe.sample.R;
+
+import java.util.Arrays;
+import java.util.WeakHashMap;
+
+/**
+ * 进度条的外观和初始值(不可变, 可以在多个进度条之间共享)
+ * <p>
+ * 布局中的进度条按照style资源解析一次并缓存, 之后同一主题下使用同一style的进度条直接复用解析结果;
+ * 代码中可以用{@link Builder}创建. 进度条通过{@link HorizontalProgressBarWithAngle#setStyle(ProgressBarStyle)}
+ * 一次性应用全部属性, 中间不会触发刷新.
+ *
+ * @author Joe
+ * @version 1.0 2018/07/30
+ */
+public final class ProgressBarStyle {
+    /** 默认样式 */
+    public static final ProgressBarStyle DEFAULT = new Builder().build();
+
+    /**
+     * 按主题和style资源缓存的解析结果
+     */
+    private static final WeakHashMap<Resources.Theme, SparseArray<ProgressBarStyle>> sCache =
+            new WeakHashMap<>();
+
+    private final int mMinWidth;
+    private final int mMaxWidth;
+    private final int mMinHeight;
+    private final int mMaxHeight;
+    private final int mMin;
+    private final int mMax;
+    private final int mProgress;
+    private final int mSecondaryProgress;
+    private final boolean mIndeterminate;
+    private final int mBarColor;
+    private final int mProgressColor;
+    private final int mSecondaryProgressColor;
+    private final int mCornerRadius;
+    private final float mTipAngle;
+
+    private ProgressBarStyle(Builder builder) {
+        mMinWidth = builder.mMinWidth;
+        mMaxWidth = builder.mMaxWidth;
+        mMinHeight = builder.mMinHeight;
+        mMaxHeight = builder.mMaxHeight;
+        mMin = builder.mMin;
+        mMax = Math.max(builder.mMax, builder.mMin);
+        mProgress = clamp(builder.mProgress, mMin, mMax);
+        mSecondaryProgress = clamp(builder.mSecondaryProgress, mMin, mMax);
+        mIndeterminate = builder.mIndeterminate;
+        mBarColor = builder.mBarColor;
+        mProgressColor = builder.mProgressColor;
+        mSecondaryProgressColor = builder.mSecondaryProgressColor;
+        mCornerRadius = builder.mCornerRadius;
+        mTipAngle = builder.mTipAngle;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return value < min ? min : (value > max ? max : value);
+    }
+
+    /**
+     * 读取布局属性
+     * <p>
+     * defStyleAttr和defStyleRes都为0, 并且进度条的属性都来自style(标签上只有布局参数、id等其他属性)时,
+     * 结果按照主题和style资源缓存; 否则每次解析.
+     *
+     * @param context      上下文
+     * @param attrs        布局属性, null时返回{@link #DEFAULT}
+     * @param defStyleAttr 默认样式属性
+     * @param defStyleRes  默认样式资源
+     */
+    public static ProgressBarStyle obtain(Context context, AttributeSet attrs, int defStyleAttr,
+                                          int defStyleRes) {
+        if (attrs == null && defStyleAttr == 0 && defStyleRes == 0) {
+            return DEFAULT;
+        }
+        if (defStyleAttr != 0 || defStyleRes != 0 || hasInlineAttributes(attrs)) {
+            return parse(context, attrs, defStyleAttr, defStyleRes);
+        }
+        final Resources.Theme theme = context.getTheme();
+        final int styleRes = attrs.getStyleAttribute();
+        synchronized (sCache) {
+            SparseArray<ProgressBarStyle> styles = sCache.get(theme);
+            if (styles == null) {
+                styles = new SparseArray<>();
+                sCache.put(theme, styles);
+            }
+            ProgressBarStyle style = styles.get(styleRes);
+            if (style == null) {
+                style = parse(context, attrs, 0, 0);
+                styles.put(styleRes, style);
+            }
+            return style;
+        }
+    }
+
+    /**
+     * 标签上是否直接写了进度条的属性
+     */
+    private static boolean hasInlineAttributes(AttributeSet attrs) {
+        final int[] styleable = R.styleable.HorizontalProgressBarWithAngle;
+        for (int i = attrs.getAttributeCount() - 1; i >= 0; i--) {
+            final int nameRes = attrs.getAttributeNameResource(i);
+            //styleable数组按照资源id升序排列
+            if (nameRes != 0 && Arrays.binarySearch(styleable, nameRes) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ProgressBarStyle parse(Context context, AttributeSet attrs, int defStyleAttr,
+                                          int defStyleRes) {
+        final Builder builder = new Builder();
+        final TypedArray a = context.obtainStyledAttributes(attrs,
+                R.styleable.HorizontalProgressBarWithAngle, defStyleAttr, defStyleRes);
+        //只遍历实际设置了的属性
+        for (int i = a.getIndexCount() - 1; i >= 0; i--) {
+            final int attr = a.getIndex(i);
+            if (attr == R.styleable.HorizontalProgressBarWithAngle_android_minWidth) {
+                builder.mMinWidth = a.getDimensionPixelSize(attr, builder.mMinWidth);
+            } else if (attr == R.styleable.HorizontalProgressBarWithAngle_android_maxWidth) {
+                builder.mMaxWidth = a.getDimensionPixelSize(attr, builder.mMaxWidth);
+            } else if (attr == R.styleable.HorizontalProgressBarWithAngle_android_minHeight) {
+                builder.mMinHeight = a.getDimensionPixelSize(attr, builder.mMinHeight);
+            } else if (attr == R.styleable.HorizontalProgressBarWithAngle_android_maxHeight) {
+                builder.mMaxHeight = a.getDimensionPixelSize(attr, builder.mMaxHeight);
+            } else if (attr == R.styleable.HorizontalProgressBarWithAngle_android_min) {
+                builder.mMin = a.getInt(attr, builder.mMin);
+            } else if (attr == R.styleable.HorizontalProgressBarWithAngle_android_max) {
+                builder.mMax = a.getInt(attr, builder.mMax);
+            } else if (attr == R.styleable.HorizontalProgressBarWithAngle_android_progress) {
+                builder.mProgress = a.getInt(attr, builder.mProgress);
+            } else if (attr == R.styleable.HorizontalProgressBarWithAngle_android_secondaryProgress) {
+                builder.mSecondaryProgress = a.getInt(attr, builder.mSecondaryProgress);
+            } else if (attr == R.styleable.HorizontalProgressBarWithAngle_android_indeterminate) {
+                builder.mIndeterminate = a.getBoolean(attr, builder.mIndeterminate);
+            } else if (attr == R.styleable.HorizontalProgressBarWithAngle_hpb_barColor) {
+                builder.mBarColor = a.getColor(attr, builder.mBarColor);
+            } else if (attr == R.styleable.HorizontalProgressBarWithAngle_hpb_progressColor) {
+                builder.mProgressColor = a.getColor(attr, builder.mProgressColor);
+            } else if (attr == R.styleable.HorizontalProgressBarWithAngle_hpb_secondaryProgressColor) {
+                builder.mSecondaryProgressColor = a.getColor(attr, builder.mSecondaryProgressColor);
+            } else if (attr == R.styleable.HorizontalProgressBarWithAngle_hpb_cornerRadius) {
+                builder.setCornerRadius(a.getDimensionPixelSize(attr, builder.mCornerRadius));
+            } else if (attr == R.styleable.HorizontalProgressBarWithAngle_hpb_tipAngle) {
+                builder.setTipAngle(a.getFloat(attr, builder.mTipAngle));
+            }
+        }
+        a.recycle();
+        return builder.build();
+    }
+
+    /**
+     * 清空解析缓存(例如切换主题资源后)
+     */
+    public static void clearCache() {
+        synchronized (sCache) {
+            sCache.clear();
+        }
+    }
+
+    public int getMinWidth() {
+        return mMinWidth;
+    }
+
+    public int getMaxWidth() {
+        return mMaxWidth;
+    }
+
+    public int getMinHeight() {
+        return mMinHeight;
+    }
+
+    public int getMaxHeight() {
+        return mMaxHeight;
+    }
+
+    public int getMin() {
+        return mMin;
+    }
+
+    public int getMax() {
+        return mMax;
+    }
+
+    public int getProgress() {
+        return mProgress;
+    }
+
+    public int getSecondaryProgress() {
+        return mSecondaryProgress;
+    }
+
+    public boolean isIndeterminate() {
+        return mIndeterminate;
+    }
+
+    public int getBarColor() {
+        return mBarColor;
+    }
+
+    public int getProgressColor() {
+        return mProgressColor;
+    }
+
+    public int getSecondaryProgressColor() {
+        return mSecondaryProgressColor;
+    }
+
+    public int getCornerRadius() {
+        return mCornerRadius;
+    }
+
+    public float getTipAngle() {
+        return mTipAngle;
+    }
+
+    /**
+     * 以当前样式为基础创建Builder
+     */
+    public Builder buildUpon() {
+        return new Builder(this);
+    }
+
+    /**
+     * {@link ProgressBarStyle}的构建器
+     */
+    public static final class Builder {
+        private int mMinWidth = 24;
+        private int mMaxWidth = 48;
+        private int mMinHeight = 24;
+        private int mMaxHeight = 48;
+        private int mMin = 0;
+        private int mMax = 100;
+        private int mProgress = 0;
+        private int mSecondaryProgress = 0;
+        private boolean mIndeterminate;
+        private int mBarColor = Color.GRAY;
+        private int mProgressColor = 0xFF00CDB0;
+        private int mSecondaryProgressColor = 0xffe6e6e6;
+        private int mCornerRadius = 8;
+        private float mTipAngle = ProgressGeometry.DEFAULT_TIP_ANGLE;
+
+        public Builder() {
+        }
+
+        public Builder(ProgressBarStyle style) {
+            mMinWidth = style.mMinWidth;
+            mMaxWidth = style.mMaxWidth;
+            mMinHeight = style.mMinHeight;
+            mMaxHeight = style.mMaxHeight;
+            mMin = style.mMin;
+            mMax = style.mMax;
+            mProgress = style.mProgress;
+            mSecondaryProgress = style.mSecondaryProgress;
+            mIndeterminate = style.mIndeterminate;
+            mBarColor = style.mBarColor;
+            mProgressColor = style.mProgressColor;
+            mSecondaryProgressColor = style.mSecondaryProgressColor;
+            mCornerRadius = style.mCornerRadius;
+            mTipAngle = style.mTipAngle;
+        }
+
+        /**
+         * 设置没有测量约束时的宽度范围(px)
+         */
+        public Builder setWidthRange(int minWidth, int maxWidth) {
+            mMinWidth = minWidth;
+            mMaxWidth = maxWidth;
+            return this;
+        }
+
+        /**
+         * 设置没有测量约束时的高度范围(px)
+         */
+        public Builder setHeightRange(int minHeight, int maxHeight) {
+            mMinHeight = minHeight;
+            mMaxHeight = maxHeight;
+            return this;
+        }
+
+        /**
+         * 设置进度范围, max小于min时按照min处理
+         */
+        public Builder setRange(int min, int max) {
+            mMin = min;
+            mMax = max;
+            return this;
+        }
+
+        /**
+         * 设置初始进度(约束在范围内)
+         */
+        public Builder setProgress(int progress) {
+            mProgress = progress;
+            return this;
+        }
+
+        /**
+         * 设置初始第二进度(约束在范围内)
+         */
+        public Builder setSecondaryProgress(int secondaryProgress) {
+            mSecondaryProgress = secondaryProgress;
+            return this;
+        }
+
+        public Builder setIndeterminate(boolean indeterminate) {
+            mIndeterminate = indeterminate;
+            return this;
+        }
+
+        public Builder setBarColor(int barColor) {
+            mBarColor = barColor;
+            return this;
+        }
+
+        public Builder setProgressColor(int progressColor) {
+            mProgressColor = progressColor;
+            return this;
+        }
+
+        public Builder setSecondaryProgressColor(int secondaryProgressColor) {
+            mSecondaryProgressColor = secondaryProgressColor;
+            return this;
+        }
+
+        /**
+         * 设置圆角半径(px)
+         */
+        public Builder setCornerRadius(int cornerRadius) {
+            if (cornerRadius < 0) {
+                throw new IllegalArgumentException("cornerRadius must not be negative: " + cornerRadius);
+            }
+            mCornerRadius = cornerRadius;
+            return this;
+        }
+
+        /**
+         * 设置尖角斜边与底边的夹角(度), (0, 90]
+         */
+        public Builder setTipAngle(float tipAngle) {
+            if (tipAngle <= 0 || tipAngle > 90) {
+                throw new IllegalArgumentException("tipAngle must be in (0, 90]: " + tipAngle);
+            }
+            mTipAngle = tipAngle;
+            return this;
+        }
+
+        public ProgressBarStyle build() {
+            return new ProgressBarStyle(this);
+        }
+    }
+}
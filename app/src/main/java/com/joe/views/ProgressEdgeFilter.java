@@ -0,0 +1,126 @@
+package com.joe.views;
+
+/**
+ * 进度更新的像素边缘过滤(setProgress的热点路径, 不依赖android)
+ * <p>
+ * 写入{@link ProgressState}后计算进度边缘所在的像素, 与最近一次请求刷新的边缘相同时只更新数值, 不需要刷新.
+ * 任意线程都可以调用; 宽度未知(还没有布局)时每次变化都需要刷新.
+ *
+ * @author Joe
+ * @version 1.0 2018/07/30
+ */
+final class ProgressEdgeFilter {
+    /**
+     * 进度没有变化
+     */
+    static final int UNCHANGED = 0;
+    /**
+     * 进度变化了, 但是边缘所在的像素没有变化
+     */
+    static final int CHANGED = 1;
+    /**
+     * 边缘移动了, 需要刷新
+     */
+    static final int REFRESH = 2;
+
+    private final ProgressState mState;
+    /**
+     * 进度条宽度(用于计算进度边缘所在的像素)
+     */
+    private volatile int mWidth;
+    /**
+     * 最近一次请求刷新的进度边缘像素(-1表示未知)
+     */
+    private volatile int mRequestedEdge = -1;
+    /**
+     * 最近一次请求刷新的第二进度边缘像素(-1表示未知)
+     */
+    private volatile int mRequestedSecondaryEdge = -1;
+
+    ProgressEdgeFilter(ProgressState state) {
+        mState = state;
+    }
+
+    int getWidth() {
+        return mWidth;
+    }
+
+    /**
+     * 宽度变化(UI线程), 按照当前进度重新计算边缘
+     */
+    void setWidth(int width) {
+        mWidth = width;
+        syncEdges();
+    }
+
+    /**
+     * 进度被整体替换后(例如应用样式), 按照当前进度重新计算边缘
+     */
+    void syncEdges() {
+        final int width = mWidth;
+        if (width > 0) {
+            mRequestedEdge = mState.computeEdge(mState.getProgress(), width);
+            mRequestedSecondaryEdge = mState.computeEdge(mState.getSecondaryProgress(), width);
+        }
+    }
+
+    /**
+     * 设置进度
+     *
+     * @return {@link #UNCHANGED}, {@link #CHANGED}或{@link #REFRESH}
+     */
+    int setProgress(int progress) {
+        if (!mState.setProgress(progress)) {
+            return UNCHANGED;
+        }
+        final int width = mWidth;
+        if (width > 0) {
+            final int edge = mState.computeEdge(mState.getProgress(), width);
+            if (edge == mRequestedEdge) {
+                return CHANGED;
+            }
+            mRequestedEdge = edge;
+        }
+        return REFRESH;
+    }
+
+    /**
+     * 设置第二进度
+     *
+     * @return {@link #UNCHANGED}, {@link #CHANGED}或{@link #REFRESH}
+     */
+    int setSecondaryProgress(int secondaryProgress) {
+        if (!mState.setSecondaryProgress(secondaryProgress)) {
+            return UNCHANGED;
+        }
+        final int width = mWidth;
+        if (width > 0) {
+            final int edge = mState.computeEdge(mState.getSecondaryProgress(), width);
+            if (edge == mRequestedSecondaryEdge) {
+                return CHANGED;
+            }
+            mRequestedSecondaryEdge = edge;
+        }
+        return REFRESH;
+    }
+
+    /**
+     * 刷新时记录实际绘制的进度边缘(UI线程)
+     */
+    void onProgressRefreshed(int progress) {
+        final int width = mWidth;
+        if (width > 0) {
+            mRequestedEdge = mState.computeEdge(progress, width);
+        }
+    }
+
+    /**
+     * 刷新时记录实际绘制的第二进度边缘(UI线程)
+     */
+    void onSecondaryProgressRefreshed() {
+        final int width = mWidth;
+        if (width > 0) {
+            mRequestedSecondaryEdge = mState.computeEdge(mState.getSecondaryProgress(), width);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.joe.views;
+
+/**
+ * 进度条的几何计算(不依赖android.graphics, 可以在JVM上测试和基准测试)
+ * <p>
+ * 进度边缘使用整数运算, 不会因为范围很大而丢失精度; 进度区间的多边形顶点写入调用者提供的数组,
+ * 圆角按照固定的段数展开成折线, 计算过程不分配对象.
+ *
+ * @author Joe
+ * @version 1.0 2018/07/30
+ */
+final class ProgressGeometry {
+    /** 默认的尖角角度: 斜边的水平偏移是高度的1/3 */
+    static final float DEFAULT_TIP_ANGLE = (float) Math.toDegrees(Math.atan(3));
+    /** 每个圆角展开的线段数 */
+    static final int CORNER_SEGMENTS = 6;
+    /** 一个区间多边形最多的顶点数(四个圆角) */
+    static final int MAX_VERTICES = 4 * (CORNER_SEGMENTS + 1);
+
+    /**
+     * 四分之一圆弧上各个顶点的cos/sin(角度从0到90度)
+     */
+    private static final float[] ARC_COS = new float[CORNER_SEGMENTS + 1];
+    private static final float[] ARC_SIN = new float[CORNER_SEGMENTS + 1];
+
+    static {
+        for (int i = 0; i <= CORNER_SEGMENTS; i++) {
+            final double angle = Math.PI / 2 * i / CORNER_SEGMENTS;
+            ARC_COS[i] = (float) Math.cos(angle);
+            ARC_SIN[i] = (float) Math.sin(angle);
+        }
+        //端点精确为0和1, 保证圆角与直边衔接
+        ARC_COS[CORNER_SEGMENTS] = 0;
+        ARC_SIN[CORNER_SEGMENTS] = 1;
+    }
+
+    private ProgressGeometry() {
+    }
+
+    /**
+     * 计算进度边缘所在的像素: floor(width * (progress - min) / (max - min)), 整数运算, 结果精确
+     *
+     * @param min      最小值
+     * @param max      最大值
+     * @param progress 进度(超出范围时约束到[min, max])
+     * @param width    进度条宽度
+     * @return [0, width]范围的像素, 范围为空时返回0
+     */
+    static int computeEdge(long min, long max, long progress, int width) {
+        if (width <= 0 || progress <= min || max <= min) {
+            return 0;
+        }
+        if (progress >= max) {
+            return width;
+        }
+        final long span = max - min;
+        final long offset = progress - min;
+        if (span > 0 && offset > 0) {
+            if (offset <= Long.MAX_VALUE / width) {
+                return (int) (offset * width / span);
+            }
+            return (int) mulDiv(offset, width, span);
+        }
+        //范围超过了long(例如[Long.MIN_VALUE, Long.MAX_VALUE]), 两个值都减半后计算
+        return computeEdge(min >> 1, max >> 1, progress >> 1, width);
+    }
+
+    /**
+     * 计算进度边缘所在的像素
+     *
+     * @param scale 进度比例[0...1]
+     * @param width 进度条宽度
+     */
+    static int computeEdge(float scale, int width) {
+        if (scale <= 0) {
+            return 0;
+        }
+        if (scale >= 1) {
+            return width;
+        }
+        return (int) (scale * width);
+    }
+
+    /**
+     * floor(a * b / c), 其中0 <= a < c, 0 < b; 逐位计算, 中间结果不会溢出
+     */
+    private static long mulDiv(long a, int b, long c) {
+        long quotient = 0;
+        long remainder = 0;
+        for (int bit = 30; bit >= 0; bit--) {
+            //(quotient, remainder) = 2 * (quotient, remainder), 余数按无符号比较
+            quotient <<= 1;
+            remainder <<= 1;
+            if (remainder + Long.MIN_VALUE >= c + Long.MIN_VALUE) {
+                remainder -= c;
+                quotient++;
+            }
+            if ((b & (1 << bit)) != 0) {
+                //加上a, a < c, 最多进位一次
+                remainder += a;
+                if (remainder + Long.MIN_VALUE >= c + Long.MIN_VALUE
+                        || remainder + Long.MIN_VALUE < a + Long.MIN_VALUE) {
+                    remainder -= c;
+                    quotient++;
+                }
+            }
+        }
+        return quotient;
+    }
+
+    /**
+     * 尖角斜边的水平偏移
+     *
+     * @param height   进度条高度
+     * @param tipAngle 斜边与底边的夹角(度), (0, 90]
+     */
+    static float tipSlant(float height, float tipAngle) {
+        if (tipAngle >= 90) {
+            return 0;
+        }
+        return (float) (height / Math.tan(Math.toRadians(tipAngle)));
+    }
+
+    /**
+     * 计算一个进度区间的多边形: 右侧是斜尖角, 左侧与尖角平行;
+     * 从0开始的区间左侧是两个圆角, 到达宽度的区间右侧是两个圆角.
+     * 顶点从左上开始按顺时针方向排列.
+     *
+     * @param out    输出, 第i个顶点的x/y写入out[2i]和out[2i + 1], 长度至少为{@link #MAX_VERTICES}的2倍
+     * @param left   区间起点(顶边的左端点)
+     * @param right  区间终点(顶边的右端点)
+     * @param width  进度条宽度
+     * @param height 进度条高度
+     * @param slant  尖角斜边的水平偏移, 见{@link #tipSlant(float, float)}
+     * @param radius 圆角半径
+     * @return 顶点数量
+     */
+    static int buildRunPolygon(float[] out, float left, float right, float width, float height,
+                               float slant, float radius) {
+        final boolean roundLeft = left <= 0;
+        final boolean roundRight = right >= width;
+        final float bottomLeft = roundLeft ? 0 : Math.max(left - slant, 0);
+        final float bottomRight = roundRight ? width : Math.max(right - slant, bottomLeft);
+        //圆角不能超过高度的一半, 也不能超过所在边的长度
+        final float maxRadius = Math.max(Math.min(radius, height / 2), 0);
+
+        int count = 0;
+        if (roundLeft) {
+            //左上圆角
+            final float r = Math.min(maxRadius, right);
+            count = addCorner(out, count, r, r, r, 2);
+        } else {
+            count = addVertex(out, count, left, 0);
+        }
+        if (roundRight) {
+            //右上和右下圆角
+            final float r = Math.min(maxRadius, (width - bottomLeft) / 2);
+            count = addCorner(out, count, width - r, r, r, 3);
+            count = addCorner(out, count, width - r, height - r, r, 0);
+        } else {
+            //顶边和斜尖角
+            count = addVertex(out, count, right, 0);
+            count = addVertex(out, count, bottomRight, height);
+        }
+        if (roundLeft) {
+            //底边和左下圆角
+            final float r = Math.min(maxRadius, bottomRight);
+            count = addCorner(out, count, r, height - r, r, 1);
+        } else {
+            count = addVertex(out, count, bottomLeft, height);
+        }
+        return count;
+    }
+
+    private static int addVertex(float[] out, int count, float x, float y) {
+        out[count * 2] = x;
+        out[count * 2 + 1] = y;
+        return count + 1;
+    }
+
+    /**
+     * 添加一个顺时针的四分之一圆弧
+     *
+     * @param quadrant 起始角度/90: 0(右)、1(下)、2(左)、3(上)
+     */
+    private static int addCorner(float[] out, int count, float cx, float cy, float r, int quadrant) {
+        if (r <= 0) {
+            return addVertex(out, count, cx, cy);
+        }
+        for (int i = 0; i <= CORNER_SEGMENTS; i++) {
+            final float cos = ARC_COS[i];
+            final float sin = ARC_SIN[i];
+            final float x;
+            final float y;
+            switch (quadrant) {
+                case 0:
+                    x = cos;
+                    y = sin;
+                    break;
+                case 1:
+                    x = -sin;
+                    y = cos;
+                    break;
+                case 2:
+                    x = -cos;
+                    y = -sin;
+                    break;
+                default:
+                    x = sin;
+                    y = -cos;
+                    break;
+            }
+            count = addVertex(out, count, cx + r * x, cy + r * y);
+        }
+        return count;
+    }
+}
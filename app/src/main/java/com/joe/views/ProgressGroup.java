@@ -0,0 +1,473 @@
+package com.joe.views;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.util.AttributeSet;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 在一个View中绘制多行带尖角的进度条
+ * <p>
+ * 适合传输队列等需要同时展示几十个进度的场景: 所有行只有一次测量、布局和绘制, 共用一个
+ * {@link ProgressAngleDrawable}. 任意线程都可以更新进度, 同一帧内所有行的更新合并为一次刷新;
+ * 只计算和绘制屏幕上可见的行, 不可见的行更新时只保存数值. 每一行的尖角路径按照进度边缘缓存,
+ * 边缘所在的像素没有变化的行绘制时不重建路径.
+ *
+ * @author Joe
+ * @version 1.0 2018/07/30
+ */
+public class ProgressGroup extends View {
+    /** 默认行高(px) */
+    private static final int DEFAULT_ROW_HEIGHT = 24;
+    /** 默认行间距(px) */
+    private static final int DEFAULT_ROW_SPACING = 8;
+    private static final int DEFAULT_MAX = 100;
+    /**
+     * 改变行数时新数组中还没有复制的行(小于0, 读取时和0一样)
+     */
+    private static final long UNSET = Long.MIN_VALUE;
+
+    /**
+     * 所有行共用的Drawable(bounds是一行的大小, 绘制时逐行平移画布)
+     */
+    private final ProgressAngleDrawable mDrawable = new ProgressAngleDrawable();
+    /**
+     * 每一行的进度(任意线程写入, UI线程绘制时读取); 写入后重新读取mValues, 被替换时再写入新数组
+     */
+    private volatile AtomicLongArray mValues = new AtomicLongArray(0);
+    /**
+     * 替换mValues(改变行数)互斥, 写入进度不加锁
+     */
+    private final Object mValuesLock = new Object();
+    /**
+     * 所有行的最大进度
+     */
+    private volatile long mMax = DEFAULT_MAX;
+    private int mRowHeight = DEFAULT_ROW_HEIGHT;
+    private int mRowSpacing = DEFAULT_ROW_SPACING;
+    /**
+     * 可见的行[mFirstVisibleRow, mLastVisibleRow], mFirstVisibleRow > mLastVisibleRow表示没有可见的行;
+     * 任意线程读取, 用来判断更新是否需要刷新
+     */
+    private volatile int mFirstVisibleRow;
+    private volatile int mLastVisibleRow = Integer.MAX_VALUE;
+    private final Rect mVisibleRect = new Rect();
+    /**
+     * 是否已经安排了下一帧的刷新
+     */
+    private final AtomicBoolean mInvalidatePending = new AtomicBoolean();
+    private final InvalidateRunnable mInvalidateRunnable = new InvalidateRunnable();
+    private final VisibleRowsListener mVisibleRowsListener = new VisibleRowsListener();
+    /**
+     * 可见行的尖角路径缓存(UI线程): 第row行使用第row % length个槽, mRowPathEdges是槽中路径对应的进度边缘,
+     * -1表示需要重建; mRowPathShape是构建路径时Drawable的形状版本
+     */
+    private Path[] mRowPaths = new Path[0];
+    private int[] mRowPathEdges = new int[0];
+    private int mRowPathShape = -1;
+
+    public ProgressGroup(Context context) {
+        this(context, null);
+    }
+
+    public ProgressGroup(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public ProgressGroup(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        //逐行绘制同一个Drawable, 不能使用只记录一次的填充
+        mDrawable.setMultiDrawHost(true);
+        mDrawable.setCallback(this);
+    }
+
+    /**
+     * 下一帧刷新任务
+     */
+    private class InvalidateRunnable implements Runnable {
+        @Override
+        public void run() {
+            //先清除标记, 之后的更新会安排新的一帧
+            mInvalidatePending.set(false);
+            invalidate();
+        }
+    }
+
+    /**
+     * 滚动或布局变化后更新可见的行, 新的行进入屏幕时重绘
+     */
+    private class VisibleRowsListener implements ViewTreeObserver.OnScrollChangedListener,
+            ViewTreeObserver.OnGlobalLayoutListener {
+        @Override
+        public void onScrollChanged() {
+            if (updateVisibleRows()) {
+                invalidate();
+            }
+        }
+
+        @Override
+        public void onGlobalLayout() {
+            onScrollChanged();
+        }
+    }
+
+    /**
+     * 设置行数(UI线程), 新的行进度为0, 保留已有行的进度
+     *
+     * @param count 行数
+     */
+    public void setRowCount(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative: " + count);
+        }
+        synchronized (mValuesLock) {
+            final AtomicLongArray old = mValues;
+            if (old.length() == count) {
+                return;
+            }
+            final AtomicLongArray values = new AtomicLongArray(count);
+            final int kept = Math.min(count, old.length());
+            for (int i = 0; i < kept; i++) {
+                values.set(i, UNSET);
+            }
+            //先发布新数组: 之后写入旧数组的线程会重新读取mValues并写入新数组
+            mValues = values;
+            for (int i = 0; i < kept; i++) {
+                //已经写入新数组的值比旧数组中的新, 不覆盖
+                values.compareAndSet(i, UNSET, old.get(i));
+            }
+        }
+        requestLayout();
+        invalidate();
+    }
+
+    public int getRowCount() {
+        return mValues.length();
+    }
+
+    /**
+     * 设置所有行的最大进度(任意线程)
+     *
+     * @param max 最大进度, 必须大于0
+     */
+    public void setMax(long max) {
+        if (max <= 0) {
+            throw new IllegalArgumentException("max must be positive: " + max);
+        }
+        if (mMax == max) {
+            return;
+        }
+        mMax = max;
+        scheduleInvalidate();
+    }
+
+    public long getMax() {
+        return mMax;
+    }
+
+    /**
+     * 设置一行的进度(任意线程), 同一帧内的多次更新合并为一次刷新
+     * <p>
+     * 不存在的行(例如与{@link #setRowCount(int)}并发时已经被删除的行)直接忽略.
+     *
+     * @param row   行
+     * @param value 进度, 会被限制在[0, max]
+     */
+    public void setProgress(int row, long value) {
+        AtomicLongArray values = mValues;
+        boolean changed = false;
+        while (row >= 0 && row < values.length()) {
+            changed |= values.getAndSet(row, value) != value;
+            final AtomicLongArray current = mValues;
+            if (current == values) {
+                break;
+            }
+            //行数同时改变了, 写入新数组
+            values = current;
+        }
+        if (changed && isRowVisible(row)) {
+            scheduleInvalidate();
+        }
+    }
+
+    /**
+     * 批量设置多行的进度(任意线程), 所有行最多引起一次刷新
+     * <p>
+     * 不存在的行(例如与{@link #setRowCount(int)}并发时已经被删除的行)直接忽略.
+     *
+     * @param rows   行
+     * @param values 对应的进度, 会被限制在[0, max]
+     */
+    public void setProgress(int[] rows, long[] values) {
+        if (rows.length != values.length) {
+            throw new IllegalArgumentException("rows and values must have the same length");
+        }
+        boolean visibleChanged = false;
+        AtomicLongArray current = mValues;
+        while (true) {
+            final int count = current.length();
+            for (int i = 0; i < rows.length; i++) {
+                final int row = rows[i];
+                if (row < 0 || row >= count) {
+                    continue;
+                }
+                if (current.getAndSet(row, values[i]) != values[i] && !visibleChanged) {
+                    visibleChanged = isRowVisible(row);
+                }
+            }
+            final AtomicLongArray replaced = mValues;
+            if (replaced == current) {
+                break;
+            }
+            //行数同时改变了, 全部重新写入新数组
+            current = replaced;
+        }
+        if (visibleChanged) {
+            scheduleInvalidate();
+        }
+    }
+
+    /**
+     * 一行的进度(已限制在[0, max])
+     */
+    public long getProgress(int row) {
+        return clamp(mValues.get(row), mMax);
+    }
+
+    /**
+     * 设置行高和行间距
+     *
+     * @param rowHeight  行高(px)
+     * @param rowSpacing 行间距(px)
+     */
+    public void setRowHeight(int rowHeight, int rowSpacing) {
+        if (rowHeight <= 0 || rowSpacing < 0) {
+            throw new IllegalArgumentException("invalid row height " + rowHeight
+                    + " or spacing " + rowSpacing);
+        }
+        if (mRowHeight == rowHeight && mRowSpacing == rowSpacing) {
+            return;
+        }
+        mRowHeight = rowHeight;
+        mRowSpacing = rowSpacing;
+        updateDrawableBounds();
+        requestLayout();
+        invalidate();
+    }
+
+    public int getRowHeight() {
+        return mRowHeight;
+    }
+
+    public int getRowSpacing() {
+        return mRowSpacing;
+    }
+
+    /**
+     * 所有行共用的Drawable, 可以用来修改颜色、圆角、尖角和渐变
+     * <p>
+     * 修改后自动刷新; 每一行按照自己的进度绘制, 不使用它的level.
+     * 所有行在同一帧内用它绘制, {@link ProgressAngleDrawable#setRecordOnceFillEnabled(boolean)}不起作用.
+     */
+    public ProgressAngleDrawable getProgressDrawable() {
+        return mDrawable;
+    }
+
+    /**
+     * 设置进度条背景色
+     */
+    public void setBarColor(int barColor) {
+        mDrawable.setBarColor(barColor);
+    }
+
+    /**
+     * 设置进度颜色
+     */
+    public void setProgressColor(int progressColor) {
+        mDrawable.setProgressColor(progressColor);
+    }
+
+    /**
+     * 设置圆角半径
+     *
+     * @param cornerRadius 圆角半径(px)
+     */
+    public void setCornerRadius(int cornerRadius) {
+        mDrawable.setCornerRadius(cornerRadius);
+    }
+
+    @Override
+    protected boolean verifyDrawable(Drawable who) {
+        return who == mDrawable || super.verifyDrawable(who);
+    }
+
+    /**
+     * Drawable的bounds只是一行, 它的刷新区域不对应View中的位置: 刷新所有行(同一帧内合并为一次)
+     */
+    @Override
+    public void invalidateDrawable(Drawable drawable) {
+        if (drawable != mDrawable) {
+            super.invalidateDrawable(drawable);
+            return;
+        }
+        scheduleInvalidate();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        final ViewTreeObserver observer = getViewTreeObserver();
+        observer.addOnScrollChangedListener(mVisibleRowsListener);
+        observer.addOnGlobalLayoutListener(mVisibleRowsListener);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        removeCallbacks(mInvalidateRunnable);
+        mInvalidatePending.set(false);
+        final ViewTreeObserver observer = getViewTreeObserver();
+        observer.removeOnScrollChangedListener(mVisibleRowsListener);
+        observer.removeOnGlobalLayoutListener(mVisibleRowsListener);
+        mDrawable.releaseLayerCaches();
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        final int count = mValues.length();
+        int dh = count > 0 ? count * mRowHeight + (count - 1) * mRowSpacing : 0;
+        dh += getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec),
+                resolveSizeAndState(dh, heightMeasureSpec, 0));
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        updateDrawableBounds();
+    }
+
+    private void updateDrawableBounds() {
+        final int width = getWidth() - getPaddingLeft() - getPaddingRight();
+        mDrawable.setBounds(0, 0, Math.max(width, 0), mRowHeight);
+    }
+
+    /**
+     * 逐行平移画布, 用同一个Drawable绘制可见的行(不调用setLevel, 尖角路径使用每一行的缓存)
+     */
+    @Override
+    protected void onDraw(Canvas canvas) {
+        updateVisibleRows();
+        final AtomicLongArray values = mValues;
+        final int first = mFirstVisibleRow;
+        final int last = Math.min(mLastVisibleRow, values.length() - 1);
+        if (first > last || mDrawable.getBounds().isEmpty()) {
+            return;
+        }
+        ensureRowPaths(last - first + 1);
+        final Path[] paths = mRowPaths;
+        final int[] pathEdges = mRowPathEdges;
+        final long max = mMax;
+        final int width = mDrawable.getBounds().width();
+        final int stride = mRowHeight + mRowSpacing;
+        final int saveCount = canvas.save();
+        canvas.translate(getPaddingLeft(), getPaddingTop() + first * stride);
+        for (int row = first; row <= last; row++) {
+            final int edge = ProgressGeometry.computeEdge(0, max, values.get(row), width);
+            final int slot = row % paths.length;
+            final boolean rebuild = pathEdges[slot] != edge;
+            pathEdges[slot] = edge;
+            mDrawable.drawRow(canvas, edge, paths[slot], rebuild);
+            canvas.translate(0, stride);
+        }
+        canvas.restoreToCount(saveCount);
+    }
+
+    /**
+     * 准备至少count个路径缓存槽; Drawable的形状变化后所有缓存的路径失效
+     */
+    private void ensureRowPaths(int count) {
+        if (mRowPaths.length < count) {
+            final Path[] paths = Arrays.copyOf(mRowPaths, count);
+            for (int i = mRowPaths.length; i < count; i++) {
+                paths[i] = new Path();
+            }
+            mRowPaths = paths;
+            //槽的数量变了, 行与槽的对应关系也变了
+            mRowPathEdges = new int[count];
+            Arrays.fill(mRowPathEdges, -1);
+        }
+        final int shape = mDrawable.getShapeGeneration();
+        if (shape != mRowPathShape) {
+            mRowPathShape = shape;
+            Arrays.fill(mRowPathEdges, -1);
+        }
+    }
+
+    /**
+     * 按照屏幕上可见的区域计算可见的行
+     *
+     * @return 可见的行是否有变化
+     */
+    private boolean updateVisibleRows() {
+        int first;
+        int last;
+        if (!getLocalVisibleRect(mVisibleRect)) {
+            first = 0;
+            last = -1;
+        } else {
+            final int stride = mRowHeight + mRowSpacing;
+            final int count = mValues.length();
+            first = computeRow(mVisibleRect.top, getPaddingTop(), stride, count);
+            last = computeRow(mVisibleRect.bottom - 1, getPaddingTop(), stride, count);
+        }
+        if (first == mFirstVisibleRow && last == mLastVisibleRow) {
+            return false;
+        }
+        mFirstVisibleRow = first;
+        mLastVisibleRow = last;
+        return true;
+    }
+
+    /**
+     * 计算y坐标所在的行(行间距算作上一行)
+     *
+     * @param y          相对View顶部的坐标
+     * @param paddingTop 上边距
+     * @param stride     行高加行间距
+     * @param count      行数
+     * @return 行, 限制在[0, count - 1]; 没有行时返回-1
+     */
+    static int computeRow(int y, int paddingTop, int stride, int count) {
+        if (count <= 0) {
+            return -1;
+        }
+        final int row = (y - paddingTop) / stride;
+        return Math.max(0, Math.min(row, count - 1));
+    }
+
+    private boolean isRowVisible(int row) {
+        return row >= mFirstVisibleRow && row <= mLastVisibleRow;
+    }
+
+    /**
+     * 安排下一帧刷新(任意线程), 已经安排时直接返回
+     */
+    private void scheduleInvalidate() {
+        if (mInvalidatePending.compareAndSet(false, true)) {
+            postOnAnimation(mInvalidateRunnable);
+        }
+    }
+
+    private static long clamp(long value, long max) {
+        return value < 0 ? 0 : Math.min(value, max);
+    }
+}
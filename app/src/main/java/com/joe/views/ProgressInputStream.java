@@ -0,0 +1,85 @@
+package com.joe.views;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 统计读取字节数的{@link InputStream}
+ * <p>
+ * 数据直接读入调用者的数组, 不做额外复制; 跳过的字节也计入进度. 不支持mark/reset(回退会让进度倒退).
+ *
+ * @author Joe
+ * @version 1.0 2018/07/30
+ */
+public class ProgressInputStream extends FilterInputStream {
+    private final ProgressSampler mSampler;
+
+    /**
+     * @param in      被包装的输入流
+     * @param sampler 进度采样器
+     */
+    public ProgressInputStream(InputStream in, ProgressSampler sampler) {
+        super(in);
+        mSampler = sampler;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int b = in.read();
+        if (b >= 0) {
+            mSampler.add(1);
+        } else {
+            mSampler.finish();
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        final int read = in.read(b, off, len);
+        if (read > 0) {
+            mSampler.add(read);
+        } else if (read < 0) {
+            mSampler.finish();
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        final long skipped = in.skip(n);
+        mSampler.add(skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            in.close();
+        } finally {
+            mSampler.finish();
+        }
+    }
+
+    /**
+     * 已读取的字节数
+     */
+    public long getTransferred() {
+        return mSampler.getTransferred();
+    }
+}
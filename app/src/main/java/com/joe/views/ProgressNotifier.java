@@ -0,0 +1,146 @@
+package com.joe.views;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 进度变化通知的合并和限速
+ * <p>
+ * 任意线程调用{@link #onUpdate()}, 同一时刻最多只有一次待执行的回调; 回调执行前到达的更新被合并,
+ * 回调时带上合并的更新次数. 两次回调的间隔不小于设置的最小间隔, 回调在UI线程或指定的Executor上执行,
+ * 同一个通知器的回调不会并发. 回调使用固定的Runnable, 每次更新和回调都不分配对象.
+ *
+ * @author Joe
+ * @version 1.0 2018/07/30
+ */
+final class ProgressNotifier {
+    /**
+     * 通知的接收者
+     */
+    interface Target {
+        /**
+         * 分发一次通知
+         *
+         * @param foldedUpdates 本次通知合并的更新次数(至少为1)
+         */
+        void onDispatch(int foldedUpdates);
+    }
+
+    private final Target mTarget;
+    private final Executor mExecutor;
+    private final long mMinIntervalMillis;
+    /**
+     * 还没有通知的更新次数
+     */
+    private final AtomicInteger mPending = new AtomicInteger();
+    /**
+     * 是否已经安排了回调(包括正在执行)
+     */
+    private final AtomicBoolean mScheduled = new AtomicBoolean();
+    private final DispatchRunnable mDispatchRunnable = new DispatchRunnable();
+    private final ExecuteRunnable mExecuteRunnable = new ExecuteRunnable();
+    private final Handler mHandler;
+    /**
+     * 上一次回调的时间(SystemClock.uptimeMillis)
+     */
+    private volatile long mLastDispatchMillis;
+    private volatile boolean mCancelled;
+
+    /**
+     * @param target       通知的接收者
+     * @param maxPerSecond 每秒最多的回调次数, 0表示不限速(仍然合并)
+     * @param executor     回调执行的Executor, null表示UI线程
+     */
+    ProgressNotifier(Target target, int maxPerSecond, Executor executor) {
+        if (maxPerSecond < 0) {
+            throw new IllegalArgumentException("maxPerSecond must not be negative: " + maxPerSecond);
+        }
+        mTarget = target;
+        mExecutor = executor;
+        mMinIntervalMillis = maxPerSecond > 0 ? (1000 + maxPerSecond - 1) / maxPerSecond : 0;
+        mHandler = executor == null || mMinIntervalMillis > 0
+                ? new Handler(Looper.getMainLooper()) : null;
+    }
+
+    /**
+     * 记录一次更新, 需要时安排回调(任意线程)
+     */
+    void onUpdate() {
+        mPending.incrementAndGet();
+        if (mScheduled.compareAndSet(false, true)) {
+            schedule();
+        }
+    }
+
+    /**
+     * 取消待执行的回调, 之后的更新不再通知
+     */
+    void cancel() {
+        mCancelled = true;
+        if (mHandler != null) {
+            mHandler.removeCallbacks(mDispatchRunnable);
+            mHandler.removeCallbacks(mExecuteRunnable);
+        }
+    }
+
+    private void schedule() {
+        if (mCancelled) {
+            return;
+        }
+        long delay = 0;
+        if (mMinIntervalMillis > 0) {
+            delay = mLastDispatchMillis + mMinIntervalMillis - SystemClock.uptimeMillis();
+        }
+        if (mExecutor == null) {
+            if (delay > 0) {
+                mHandler.postDelayed(mDispatchRunnable, delay);
+            } else {
+                mHandler.post(mDispatchRunnable);
+            }
+        } else if (delay > 0) {
+            //到时间后再交给Executor
+            mHandler.postDelayed(mExecuteRunnable, delay);
+        } else {
+            mExecutor.execute(mDispatchRunnable);
+        }
+    }
+
+    private void dispatch() {
+        if (mCancelled) {
+            return;
+        }
+        final int folded = mPending.getAndSet(0);
+        if (folded > 0) {
+            if (mMinIntervalMillis > 0) {
+                mLastDispatchMillis = SystemClock.uptimeMillis();
+            }
+            mTarget.onDispatch(folded);
+        }
+        mScheduled.set(false);
+        //回调期间到达的更新
+        if (mPending.get() > 0 && mScheduled.compareAndSet(false, true)) {
+            schedule();
+        }
+    }
+
+    private class DispatchRunnable implements Runnable {
+        @Override
+        public void run() {
+            dispatch();
+        }
+    }
+
+    private class ExecuteRunnable implements Runnable {
+        @Override
+        public void run() {
+            if (!mCancelled) {
+                mExecutor.execute(mDispatchRunnable);
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.joe.views;
+
+/**
+ * 稀疏进度更新之间的预测(航位推算)
+ * <p>
+ * 用指数加权移动平均(EWMA)估计进度速率和两次更新的间隔, 权重按照时间计算:
+ * 间隔为dt的更新权重是1 - e^(-dt / 时间常数), 不受更新频率的影响.
+ * 预测值不超过最近一次的真实进度, 所以不会超过下一次到达的真实进度: 收到真实进度时从当时的预测值出发,
+ * 在一个估计的更新间隔内匀速前进到这个真实进度. 速率稳定时显示的进度连续前进, 落后真实进度一个更新间隔.
+ * 剩余时间按照估计的速率从真实进度推算. 只在UI线程使用, 不分配对象.
+ *
+ * @author Joe
+ * @version 1.0 2018/07/30
+ */
+final class ProgressPredictor {
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    private final double mTimeConstantNanos;
+    /**
+     * 已经收到的更新次数(2次以上才有速率)
+     */
+    private int mSamples;
+    private long mLastValue;
+    private long mLastNanos;
+    /**
+     * 收到最近一次真实进度时的预测值(之后从这里前进到mLastValue)
+     */
+    private double mAnchorValue;
+    private long mMax;
+    /**
+     * 平滑后的速率(每纳秒的进度)和更新间隔(纳秒)
+     */
+    private double mRate;
+    private double mInterval;
+
+    /**
+     * @param timeConstantMillis EWMA的时间常数, 越大越平滑, 对速率变化的反应越慢
+     */
+    ProgressPredictor(long timeConstantMillis) {
+        if (timeConstantMillis <= 0) {
+            throw new IllegalArgumentException("timeConstantMillis must be positive: "
+                    + timeConstantMillis);
+        }
+        mTimeConstantNanos = timeConstantMillis * NANOS_PER_MILLI;
+    }
+
+    /**
+     * 收到真实进度
+     *
+     * @param value 进度
+     * @param max   最大进度
+     * @param nanos 收到的时间(System.nanoTime)
+     * @return false表示进度倒退(例如重新开始), 估计已经重置, 显示需要直接跳到真实进度
+     */
+    boolean onUpdate(long value, long max, long nanos) {
+        mMax = max;
+        if (mSamples == 0 || value < mLastValue) {
+            final boolean first = mSamples == 0;
+            reset();
+            mSamples = 1;
+            mLastValue = value;
+            mLastNanos = nanos;
+            mAnchorValue = value;
+            return first;
+        }
+        final long dt = nanos - mLastNanos;
+        if (dt <= 0) {
+            //同一时刻的多次更新合并
+            mLastValue = value;
+            return true;
+        }
+        //从当前显示的预测值出发
+        final double anchor = predict(nanos);
+        final double instantRate = (value - mLastValue) / (double) dt;
+        if (mSamples == 1) {
+            mRate = instantRate;
+            mInterval = dt;
+        } else {
+            final double alpha = 1 - Math.exp(-dt / mTimeConstantNanos);
+            mRate += alpha * (instantRate - mRate);
+            mInterval += alpha * (dt - mInterval);
+        }
+        mSamples++;
+        mAnchorValue = anchor;
+        mLastValue = value;
+        mLastNanos = nanos;
+        return true;
+    }
+
+    /**
+     * 清除所有估计
+     */
+    void reset() {
+        mSamples = 0;
+        mRate = 0;
+        mInterval = 0;
+        mAnchorValue = 0;
+    }
+
+    /**
+     * 预测的(显示的)进度
+     *
+     * @param nanos 时间(System.nanoTime)
+     * @return 不超过最近一次的真实进度
+     */
+    double predict(long nanos) {
+        if (mSamples < 2) {
+            return mLastValue;
+        }
+        final double fraction = Math.min(Math.max(nanos - mLastNanos, 0) / mInterval, 1);
+        return mAnchorValue + (mLastValue - mAnchorValue) * fraction;
+    }
+
+    /**
+     * 预测值在这个时间之后是否还会前进(决定是否需要下一帧)
+     */
+    boolean isAdvancing(long nanos) {
+        return mSamples >= 2 && mAnchorValue < mLastValue && nanos - mLastNanos < mInterval;
+    }
+
+    /**
+     * 按照估计的速率推算的真实进度(用于剩余时间), 最多推算一个估计的更新间隔
+     */
+    private double estimate(long nanos) {
+        final double elapsed = Math.min(Math.max(nanos - mLastNanos, 0), mInterval);
+        return Math.min(mLastValue + mRate * elapsed, mMax);
+    }
+
+    long getMax() {
+        return mMax;
+    }
+
+    /**
+     * 估计的速率
+     *
+     * @return 每秒的进度, 没有估计时为0
+     */
+    double getThroughput() {
+        return mSamples < 2 ? 0 : mRate * NANOS_PER_SECOND;
+    }
+
+    /**
+     * 估计的剩余时间
+     *
+     * @param nanos 当前时间(System.nanoTime)
+     * @return 毫秒, 速率未知时返回-1
+     */
+    long getRemainingMillis(long nanos) {
+        if (mSamples > 0 && mLastValue >= mMax) {
+            return 0;
+        }
+        if (mSamples < 2 || mRate <= 0) {
+            return -1;
+        }
+        return (long) Math.ceil((mMax - estimate(nanos)) / mRate / NANOS_PER_MILLI);
+    }
+}
@@ -0,0 +1,60 @@
+package com.joe.views;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * 统计读取字节数的{@link ReadableByteChannel}
+ * <p>
+ * 数据直接读入调用者的缓冲区, 不做额外复制; 每次读取只在{@link ProgressSampler}中累加计数,
+ * 读到末尾或关闭时通知最终值.
+ *
+ * @author Joe
+ * @version 1.0 2018/07/30
+ */
+public class ProgressReadableByteChannel implements ReadableByteChannel {
+    private final ReadableByteChannel mChannel;
+    private final ProgressSampler mSampler;
+
+    /**
+     * @param channel 被包装的通道
+     * @param sampler 进度采样器
+     */
+    public ProgressReadableByteChannel(ReadableByteChannel channel, ProgressSampler sampler) {
+        mChannel = channel;
+        mSampler = sampler;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        final int read = mChannel.read(dst);
+        if (read > 0) {
+            mSampler.add(read);
+        } else if (read < 0) {
+            mSampler.finish();
+        }
+        return read;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return mChannel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            mChannel.close();
+        } finally {
+            mSampler.finish();
+        }
+    }
+
+    /**
+     * 已读取的字节数
+     */
+    public long getTransferred() {
+        return mSampler.getTransferred();
+    }
+}
@@ -0,0 +1,92 @@
+package com.joe.views;
+
+/**
+ * 传输进度的采样
+ * <p>
+ * 读写循环每次调用{@link #add(long)}只累加计数; 累计的变化达到minBytes(例如进度条上一个像素对应的字节数),
+ * 或者距离上一次通知超过了minIntervalMillis时, 才通知{@link ProgressSink}. 传输结束时{@link #finish()}
+ * 总是通知最终值.
+ * <p>
+ * 每个采样器只能在一个线程上使用(通常是传输线程), 不加锁, 不分配对象.
+ *
+ * @author Joe
+ * @version 1.0 2018/07/30
+ */
+public final class ProgressSampler {
+    private final ProgressSink mSink;
+    private final long mMinBytes;
+    private final long mMinIntervalNanos;
+    private long mTransferred;
+    private long mReported = -1;
+    private long mReportedNanos;
+    private boolean mFinished;
+
+    /**
+     * @param sink              进度的接收者
+     * @param minBytes          两次通知之间至少变化的字节数, 至少为1
+     * @param minIntervalMillis 变化不足minBytes时, 超过这个时间也通知, 0表示只按字节数采样
+     */
+    public ProgressSampler(ProgressSink sink, long minBytes, long minIntervalMillis) {
+        if (sink == null) {
+            throw new NullPointerException("sink == null");
+        }
+        if (minBytes < 1) {
+            throw new IllegalArgumentException("minBytes must be positive: " + minBytes);
+        }
+        if (minIntervalMillis < 0) {
+            throw new IllegalArgumentException("minIntervalMillis must not be negative: "
+                    + minIntervalMillis);
+        }
+        mSink = sink;
+        mMinBytes = minBytes;
+        mMinIntervalNanos = minIntervalMillis * 1000000L;
+        mReportedNanos = System.nanoTime();
+    }
+
+    /**
+     * 累加传输的字节数, 需要时通知
+     *
+     * @param bytes 本次传输的字节数
+     */
+    public void add(long bytes) {
+        if (bytes <= 0) {
+            return;
+        }
+        final long transferred = mTransferred + bytes;
+        mTransferred = transferred;
+        if (transferred - mReported >= mMinBytes) {
+            report(transferred, mMinIntervalNanos > 0 ? System.nanoTime() : 0);
+        } else if (mMinIntervalNanos > 0) {
+            final long now = System.nanoTime();
+            if (now - mReportedNanos >= mMinIntervalNanos) {
+                report(transferred, now);
+            }
+        }
+    }
+
+    /**
+     * 传输结束(或者流被关闭), 通知最终值; 多次调用只通知一次
+     */
+    public void finish() {
+        if (mFinished) {
+            return;
+        }
+        mFinished = true;
+        if (mTransferred != mReported) {
+            report(mTransferred, 0);
+        }
+    }
+
+    /**
+     * 已传输的字节数(精确值)
+     */
+    public long getTransferred() {
+        return mTransferred;
+    }
+
+    private void report(long transferred, long now) {
+        mReported = transferred;
+        mReportedNanos = now;
+        mSink.onProgress(transferred);
+    }
+}
@@ -0,0 +1,19 @@
+package com.joe.views;
+
+/**
+ * 传输进度的接收者
+ * <p>
+ * 由{@link ProgressSampler}在传输线程上调用, 实现不能阻塞;
+ * {@link HorizontalProgressBarWithAngle#newProgressSampler(long)}创建的采样器直接写入进度条的无锁状态.
+ *
+ * @author Joe
+ * @version 1.0 2018/07/30
+ */
+public interface ProgressSink {
+    /**
+     * 进度变化
+     *
+     * @param transferred 已传输的字节数(累计)
+     */
+    void onProgress(long transferred);
+}
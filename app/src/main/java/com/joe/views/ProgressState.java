@@ -0,0 +1,253 @@
+package com.joe.views;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无锁的进度状态
+ * <p>
+ * 范围(min/max)和进度值(progress/secondaryProgress)各自打包在一个long中, 通过CAS更新,
+ * 任意线程读写都不需要获取View的锁.
+ * <p>
+ * 跨线程的刷新请求只保留一个"最新值"槽: 生产者只记录刷新标志, UI线程取出时直接读取最新的进度值,
+ * 因此无论生产者调用多快、View脱离窗口多久, 积压的内存都是固定的.
+ *
+ * @author Joe
+ * @version 1.0 2018/07/30
+ */
+final class ProgressState {
+    /** 有待处理的刷新 */
+    static final int FLAG_PENDING = 1;
+    /** 刷新来自用户操作 */
+    static final int FLAG_FROM_USER = 1 << 1;
+    /** 刷新需要动画 */
+    static final int FLAG_ANIMATE = 1 << 2;
+    /** 当前进度需要刷新 */
+    static final int FLAG_PRIMARY = 1 << 3;
+    /** 第二进度需要刷新 */
+    static final int FLAG_SECONDARY = 1 << 4;
+    /** 分段进度需要刷新 */
+    static final int FLAG_SEGMENTS = 1 << 5;
+    /** 刷新内容标志, 合并时累加; 其他标志只保留最新一次 */
+    private static final int TARGET_FLAGS = FLAG_PRIMARY | FLAG_SECONDARY | FLAG_SEGMENTS;
+
+    /**
+     * 高32位为min, 低32位为max
+     */
+    private final AtomicLong mRange = new AtomicLong();
+    /**
+     * 高32位为progress, 低32位为secondaryProgress
+     */
+    private final AtomicLong mValues = new AtomicLong();
+    /**
+     * 最新值刷新槽(FLAG_*组合, 0表示没有待处理的刷新)
+     */
+    private final AtomicInteger mPending = new AtomicInteger();
+
+    ProgressState(int min, int max) {
+        init(min, max, min, min);
+    }
+
+    /**
+     * 直接设置全部状态(不做范围检查, 仅用于初始化)
+     */
+    void init(int min, int max, int progress, int secondaryProgress) {
+        mRange.set(pack(min, max));
+        mValues.set(pack(progress, secondaryProgress));
+    }
+
+    int getMin() {
+        return high(mRange.get());
+    }
+
+    int getMax() {
+        return low(mRange.get());
+    }
+
+    int getProgress() {
+        return high(mValues.get());
+    }
+
+    int getSecondaryProgress() {
+        return low(mValues.get());
+    }
+
+    /**
+     * 计算进度在当前范围内的比例(同一次读取的min/max, 不会读到撕裂的范围)
+     *
+     * @param progress 进度值
+     * @return [0...1]范围的比例, 范围为空时返回0
+     */
+    float getScale(int progress) {
+        final long range = mRange.get();
+        final int min = high(range);
+        final long span = (long) low(range) - min;
+        return span > 0 ? (float) (((long) progress - min) / (double) span) : 0;
+    }
+
+    /**
+     * 计算进度边缘所在的像素(同一次读取的min/max, 整数运算, 见{@link ProgressGeometry#computeEdge(long, long, long, int)})
+     *
+     * @param progress 进度值
+     * @param width    进度条宽度
+     */
+    int computeEdge(int progress, int width) {
+        final long range = mRange.get();
+        return ProgressGeometry.computeEdge(high(range), low(range), progress, width);
+    }
+
+    /**
+     * 设置最小值
+     *
+     * @param min   最小值
+     * @param clamp 是否按照当前最大值约束, 同时约束当前进度
+     * @return 是否有变化
+     */
+    boolean setMin(int min, boolean clamp) {
+        for (;;) {
+            final long range = mRange.get();
+            final int max = low(range);
+            final int value = clamp && min > max ? max : min;
+            if (value == high(range)) {
+                return false;
+            }
+            if (mRange.compareAndSet(range, pack(value, max))) {
+                if (clamp) {
+                    clampValues();
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 设置最大值
+     *
+     * @param max   最大值
+     * @param clamp 是否按照当前最小值约束, 同时约束当前进度
+     * @return 是否有变化
+     */
+    boolean setMax(int max, boolean clamp) {
+        for (;;) {
+            final long range = mRange.get();
+            final int min = high(range);
+            final int value = clamp && max < min ? min : max;
+            if (value == low(range)) {
+                return false;
+            }
+            if (mRange.compareAndSet(range, pack(min, value))) {
+                if (clamp) {
+                    clampValues();
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 设置当前进度(自动约束在[min, max]内)
+     *
+     * @return 是否有变化
+     */
+    boolean setProgress(int progress) {
+        for (;;) {
+            final long range = mRange.get();
+            final int value = clamp(progress, range);
+            final long values = mValues.get();
+            if (value == high(values)) {
+                return false;
+            }
+            if (mValues.compareAndSet(values, pack(value, low(values)))) {
+                if (mRange.get() != range) {
+                    //写入期间范围被修改, 重新约束
+                    clampValues();
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 设置第二进度(自动约束在[min, max]内)
+     *
+     * @return 是否有变化
+     */
+    boolean setSecondaryProgress(int secondaryProgress) {
+        for (;;) {
+            final long range = mRange.get();
+            final int value = clamp(secondaryProgress, range);
+            final long values = mValues.get();
+            if (value == low(values)) {
+                return false;
+            }
+            if (mValues.compareAndSet(values, pack(high(values), value))) {
+                if (mRange.get() != range) {
+                    clampValues();
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 按照当前范围约束进度值
+     */
+    private void clampValues() {
+        for (;;) {
+            final long range = mRange.get();
+            final long values = mValues.get();
+            final long clamped = pack(clamp(high(values), range), clamp(low(values), range));
+            if (clamped == values || mValues.compareAndSet(values, clamped)) {
+                if (mRange.get() == range) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 提交一次刷新请求
+     * <p>
+     * FLAG_PRIMARY/FLAG_SECONDARY/FLAG_SEGMENTS累加, 保证合并后每种进度都会刷新;
+     * FLAG_FROM_USER/FLAG_ANIMATE只保留最新一次的值.
+     *
+     * @param flags FLAG_*的组合
+     * @return 刷新槽之前是否为空(为空时调用者需要安排一次UI线程的处理)
+     */
+    boolean offer(int flags) {
+        for (;;) {
+            final int pending = mPending.get();
+            final int update = FLAG_PENDING | (pending & TARGET_FLAGS) | flags;
+            if (mPending.compareAndSet(pending, update)) {
+                return (pending & FLAG_PENDING) == 0;
+            }
+        }
+    }
+
+    /**
+     * 取出待处理的刷新请求
+     *
+     * @return 刷新标志, 没有待处理的刷新时返回0
+     */
+    int drain() {
+        return mPending.getAndSet(0);
+    }
+
+    private static int clamp(int value, long range) {
+        final int min = high(range);
+        final int max = low(range);
+        return value < min ? min : (value > max ? max : value);
+    }
+
+    static long pack(int high, int low) {
+        return ((long) high << 32) | (low & 0xFFFFFFFFL);
+    }
+
+    static int high(long packed) {
+        return (int) (packed >> 32);
+    }
+
+    static int low(long packed) {
+        return (int) packed;
+    }
+}
@@ -0,0 +1,56 @@
+package com.joe.views;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * 统计写入字节数的{@link WritableByteChannel}
+ * <p>
+ * 调用者的缓冲区直接交给被包装的通道, 不做额外复制; 每次写入只在{@link ProgressSampler}中累加计数,
+ * 关闭时通知最终值.
+ *
+ * @author Joe
+ * @version 1.0 2018/07/30
+ */
+public class ProgressWritableByteChannel implements WritableByteChannel {
+    private final WritableByteChannel mChannel;
+    private final ProgressSampler mSampler;
+
+    /**
+     * @param channel 被包装的通道
+     * @param sampler 进度采样器
+     */
+    public ProgressWritableByteChannel(WritableByteChannel channel, ProgressSampler sampler) {
+        mChannel = channel;
+        mSampler = sampler;
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        final int written = mChannel.write(src);
+        mSampler.add(written);
+        return written;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return mChannel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            mChannel.close();
+        } finally {
+            mSampler.finish();
+        }
+    }
+
+    /**
+     * 已写入的字节数
+     */
+    public long getTransferred() {
+        return mSampler.getTransferred();
+    }
+}
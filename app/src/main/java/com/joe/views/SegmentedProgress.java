@@ -0,0 +1,152 @@
+package com.joe.views;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 分段进度(例如分块并行下载)
+ * <p>
+ * 分段的范围和进度都保存在基本类型数组中, 不为每个分段创建对象. 分段i的范围是
+ * [starts[i], starts[i + 1]), 最后一个分段到总长度为止; 已完成的进度从分段的起点开始计算.
+ * <p>
+ * 每个分段的进度可以在任意线程修改; {@link #computeRuns(float[])}把相邻的已完成分段合并成连续的区间,
+ * 绘制的开销只取决于区间的数量, 与分段数量无关.
+ *
+ * @author Joe
+ * @version 1.0 2018/07/30
+ */
+final class SegmentedProgress {
+    /**
+     * 总长度
+     */
+    private final long mTotal;
+    /**
+     * 分段的起点(升序)
+     */
+    private final long[] mStarts;
+    /**
+     * 每个分段已完成的长度
+     */
+    private final AtomicLongArray mDone;
+
+    /**
+     * @param total  总长度, 必须大于0
+     * @param starts 分段的起点, 升序, 第一个分段从0开始(会复制一份)
+     */
+    SegmentedProgress(long total, long[] starts) {
+        if (total <= 0) {
+            throw new IllegalArgumentException("total must be positive: " + total);
+        }
+        if (starts.length == 0 || starts[0] != 0) {
+            throw new IllegalArgumentException("the first segment must start at 0");
+        }
+        for (int i = 1; i < starts.length; i++) {
+            if (starts[i] <= starts[i - 1] || starts[i] >= total) {
+                throw new IllegalArgumentException("segment starts must be ascending and less than total: "
+                        + starts[i]);
+            }
+        }
+        mTotal = total;
+        mStarts = starts.clone();
+        mDone = new AtomicLongArray(starts.length);
+    }
+
+    long getTotal() {
+        return mTotal;
+    }
+
+    int getSegmentCount() {
+        return mStarts.length;
+    }
+
+    long getSegmentStart(int segment) {
+        return mStarts[segment];
+    }
+
+    long getSegmentLength(int segment) {
+        return getSegmentEnd(segment) - mStarts[segment];
+    }
+
+    private long getSegmentEnd(int segment) {
+        return segment + 1 < mStarts.length ? mStarts[segment + 1] : mTotal;
+    }
+
+    /**
+     * 设置分段已完成的长度(自动约束在[0, 分段长度]内), 可在任意线程调用
+     *
+     * @return 是否有变化
+     */
+    boolean setSegmentProgress(int segment, long done) {
+        final long length = getSegmentLength(segment);
+        final long value = done < 0 ? 0 : (done > length ? length : done);
+        return mDone.getAndSet(segment, value) != value;
+    }
+
+    long getSegmentProgress(int segment) {
+        return mDone.get(segment);
+    }
+
+    /**
+     * 所有分段已完成的长度之和
+     */
+    long getCompleted() {
+        long completed = 0;
+        for (int i = 0, count = mStarts.length; i < count; i++) {
+            completed += mDone.get(i);
+        }
+        return completed;
+    }
+
+    /**
+     * 计算已完成的连续区间: 已完成的分段和它后面分段已完成的部分合并成一个区间
+     *
+     * @param runs 输出, 第i个区间的起点和终点(总长度的比例[0...1])分别写入runs[2i]和runs[2i + 1],
+     *             长度至少为分段数量的2倍
+     * @return 区间数量
+     */
+    int computeRuns(float[] runs) {
+        final double total = mTotal;
+        int count = 0;
+        boolean open = false;
+        long runStart = 0;
+        long runEnd = 0;
+        for (int i = 0, segments = mStarts.length; i < segments; i++) {
+            final long start = mStarts[i];
+            final long done = mDone.get(i);
+            if (done <= 0) {
+                if (open) {
+                    runs[count * 2] = (float) (runStart / total);
+                    runs[count * 2 + 1] = (float) (runEnd / total);
+                    count++;
+                    open = false;
+                }
+                continue;
+            }
+            if (open && start == runEnd) {
+                //前一个分段已完成, 合并到同一个区间
+                runEnd = start + done;
+            } else {
+                if (open) {
+                    runs[count * 2] = (float) (runStart / total);
+                    runs[count * 2 + 1] = (float) (runEnd / total);
+                    count++;
+                }
+                runStart = start;
+                runEnd = start + done;
+                open = true;
+            }
+            if (runEnd < getSegmentEnd(i)) {
+                //分段还没有完成, 区间在这里结束
+                runs[count * 2] = (float) (runStart / total);
+                runs[count * 2 + 1] = (float) (runEnd / total);
+                count++;
+                open = false;
+            }
+        }
+        if (open) {
+            runs[count * 2] = (float) (runStart / total);
+            runs[count * 2 + 1] = (float) (runEnd / total);
+            count++;
+        }
+        return count;
+    }
+}
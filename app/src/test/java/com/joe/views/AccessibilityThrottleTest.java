@@ -0,0 +1,113 @@
+package com.joe.views;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * AccessibilityThrottle 单元测试
+ */
+public class AccessibilityThrottleTest {
+
+    /**
+     * 模拟UI线程: 进度更新和到期的播报按时间顺序处理
+     */
+    private static class Simulation {
+        final AccessibilityThrottle mThrottle;
+        long mDueMillis = -1;
+        int mAnnouncements;
+        int mLastAnnounced = -1;
+        long mLastAnnouncedMillis = Long.MIN_VALUE / 2;
+        long mMinGapMillis = Long.MAX_VALUE;
+        int mMinStep = Integer.MAX_VALUE;
+
+        Simulation(long interval, int step) {
+            mThrottle = new AccessibilityThrottle(interval, step);
+        }
+
+        void update(int percent, long now) {
+            runDue(percent, now);
+            final long delay = mThrottle.offer(percent, now);
+            if (delay != AccessibilityThrottle.SKIP) {
+                mDueMillis = now + delay;
+                runDue(percent, now);
+            }
+        }
+
+        void runDue(int percent, long now) {
+            if (mDueMillis < 0 || mDueMillis > now) {
+                return;
+            }
+            mDueMillis = -1;
+            if (mThrottle.onDue(percent, now)) {
+                if (mLastAnnounced >= 0) {
+                    mMinGapMillis = Math.min(mMinGapMillis, now - mLastAnnouncedMillis);
+                    if (percent != 100) {
+                        mMinStep = Math.min(mMinStep, Math.abs(percent - mLastAnnounced));
+                    }
+                }
+                mAnnouncements++;
+                mLastAnnounced = percent;
+                mLastAnnouncedMillis = now;
+            }
+        }
+    }
+
+    @Test
+    public void highRateProducer_announcementsBoundedByCadenceAndStep() throws Exception {
+        final Simulation sim = new Simulation(200, 5);
+        //10秒内100000次更新, 进度从0到100%
+        final int updates = 100000;
+        final long duration = 10000;
+        for (int i = 0; i <= updates; i++) {
+            final long now = i * duration / updates;
+            sim.update((int) (i * 100L / updates), now);
+        }
+        sim.runDue(100, Long.MAX_VALUE);
+        assertTrue("announcements=" + sim.mAnnouncements, sim.mAnnouncements <= 100 / 5 + 2);
+        assertTrue("announcements=" + sim.mAnnouncements, sim.mAnnouncements <= duration / 200 + 2);
+        assertTrue("gap=" + sim.mMinGapMillis, sim.mMinGapMillis >= 200);
+        assertTrue("step=" + sim.mMinStep, sim.mMinStep >= 5);
+        assertEquals(100, sim.mLastAnnounced);
+    }
+
+    @Test
+    public void fastBurst_waitsForCadence() throws Exception {
+        final Simulation sim = new Simulation(1000, 1);
+        //100ms内从0到100%, 只有开始和结束两次播报
+        for (int i = 0; i <= 100; i++) {
+            sim.update(i, i);
+        }
+        sim.runDue(100, 1000);
+        assertEquals(2, sim.mAnnouncements);
+        assertEquals(100, sim.mLastAnnounced);
+    }
+
+    @Test
+    public void smallChanges_notAnnounced() throws Exception {
+        AccessibilityThrottle throttle = new AccessibilityThrottle(0, 10);
+        assertEquals(0, throttle.offer(40, 0));
+        assertTrue(throttle.onDue(40, 0));
+        assertEquals(AccessibilityThrottle.SKIP, throttle.offer(45, 10));
+        assertEquals(AccessibilityThrottle.SKIP, throttle.offer(31, 20));
+        assertEquals(0, throttle.offer(50, 30));
+        //到期时进度回到了上次播报的附近
+        assertFalse(throttle.onDue(42, 30));
+    }
+
+    @Test
+    public void endpoints_alwaysAnnounced() throws Exception {
+        AccessibilityThrottle throttle = new AccessibilityThrottle(0, 50);
+        assertEquals(0, throttle.offer(97, 0));
+        assertTrue(throttle.onDue(97, 0));
+        assertEquals(0, throttle.offer(100, 1));
+        assertTrue(throttle.onDue(100, 1));
+        assertEquals(0, throttle.offer(0, 2));
+        assertTrue(throttle.onDue(0, 2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidStep_rejected() throws Exception {
+        new AccessibilityThrottle(100, 0);
+    }
+}
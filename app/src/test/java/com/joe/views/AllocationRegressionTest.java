@@ -0,0 +1,133 @@
+package com.joe.views;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * 进度更新热路径的内存分配回归测试
+ * <p>
+ * 通过HotSpot的线程分配计数统计预热之后每次调用分配的字节数, 热路径应该不分配对象.
+ * 不支持分配计数的JVM上跳过.
+ */
+public class AllocationRegressionTest {
+    private static final int WARMUP = 50000;
+    private static final int ITERATIONS = 100000;
+    /**
+     * 允许的总分配字节数(计数本身和JIT偶尔的分配), 远小于每次调用分配一个对象
+     */
+    private static final long TOLERANCE_BYTES = 4096;
+
+    private com.sun.management.ThreadMXBean mThreadBean;
+
+    @Before
+    public void setUp() throws Exception {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        mThreadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(mThreadBean.isThreadAllocatedMemorySupported());
+        mThreadBean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    /**
+     * 被测的操作
+     */
+    private interface Operation {
+        void run(int i);
+    }
+
+    private long measure(Operation operation) {
+        for (int i = 0; i < WARMUP; i++) {
+            operation.run(i);
+        }
+        final long threadId = Thread.currentThread().getId();
+        final long before = mThreadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            operation.run(i);
+        }
+        return mThreadBean.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    private void assertAllocationFree(String name, Operation operation) {
+        final long bytes = measure(operation);
+        assertTrue(name + " allocated " + bytes + " bytes in " + ITERATIONS + " calls",
+                bytes <= TOLERANCE_BYTES);
+    }
+
+    @Test
+    public void progressState_setOfferDrain() throws Exception {
+        final ProgressState state = new ProgressState(0, 1000);
+        assertAllocationFree("ProgressState", new Operation() {
+            @Override
+            public void run(int i) {
+                state.setProgress(i % 1000);
+                state.offer(ProgressState.FLAG_PRIMARY);
+                state.drain();
+                state.computeEdge(state.getProgress(), 1080);
+            }
+        });
+    }
+
+    @Test
+    public void geometry_edgeAndPolygon() throws Exception {
+        final float[] vertices = new float[ProgressGeometry.MAX_VERTICES * 2];
+        assertAllocationFree("ProgressGeometry", new Operation() {
+            @Override
+            public void run(int i) {
+                final int edge = ProgressGeometry.computeEdge(0, Long.MAX_VALUE,
+                        (Long.MAX_VALUE / ITERATIONS) * i, 1080);
+                ProgressGeometry.buildRunPolygon(vertices, 0, edge, Float.MAX_VALUE, 24,
+                        ProgressGeometry.tipSlant(24, ProgressGeometry.DEFAULT_TIP_ANGLE), 8);
+            }
+        });
+    }
+
+    @Test
+    public void segmentedProgress_updateAndRuns() throws Exception {
+        final long[] starts = new long[16];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = i * 1000L;
+        }
+        final SegmentedProgress segments = new SegmentedProgress(16000, starts);
+        final float[] runs = new float[starts.length * 2];
+        assertAllocationFree("SegmentedProgress", new Operation() {
+            @Override
+            public void run(int i) {
+                segments.setSegmentProgress(i % 16, i % 1001);
+                segments.computeRuns(runs);
+            }
+        });
+    }
+
+    @Test
+    public void sampler_add() throws Exception {
+        final ProgressSampler sampler = new ProgressSampler(new ProgressSink() {
+            @Override
+            public void onProgress(long transferred) {
+            }
+        }, 64 * 1024, 100);
+        assertAllocationFree("ProgressSampler", new Operation() {
+            @Override
+            public void run(int i) {
+                sampler.add(8192);
+            }
+        });
+    }
+
+    @Test
+    public void accessibilityThrottle_offerAndDue() throws Exception {
+        final AccessibilityThrottle throttle = new AccessibilityThrottle(200, 5);
+        assertAllocationFree("AccessibilityThrottle", new Operation() {
+            @Override
+            public void run(int i) {
+                if (throttle.offer(i % 101, i) != AccessibilityThrottle.SKIP) {
+                    throttle.onDue(i % 101, i);
+                }
+            }
+        });
+    }
+}
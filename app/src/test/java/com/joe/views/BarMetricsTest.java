@@ -0,0 +1,89 @@
+package com.joe.views;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * BarMetrics 单元测试
+ */
+public class BarMetricsTest {
+
+    @Test
+    public void updates_coalescedIsReceivedMinusApplied() throws Exception {
+        BarMetrics metrics = new BarMetrics();
+        for (int i = 0; i < 10; i++) {
+            metrics.onUpdateReceived();
+        }
+        metrics.onUpdateApplied();
+        metrics.onUpdateApplied();
+        assertEquals(10, metrics.getUpdatesReceived());
+        assertEquals(2, metrics.getUpdatesApplied());
+        assertEquals(8, metrics.getUpdatesCoalesced());
+    }
+
+    @Test
+    public void draw_tracksCountTotalAndMax() throws Exception {
+        BarMetrics metrics = new BarMetrics();
+        metrics.onDraw(100);
+        metrics.onDraw(300);
+        metrics.onDraw(200);
+        assertEquals(3, metrics.getDrawCount());
+        assertEquals(600, metrics.getDrawTimeNanos());
+        assertEquals(300, metrics.getMaxDrawTimeNanos());
+        assertEquals(200, metrics.getAverageDrawTimeNanos());
+    }
+
+    @Test
+    public void queueDepth_aggregatesIntoGlobal() throws Exception {
+        final long globalBefore = BarMetrics.getGlobal().getQueueDepth();
+        BarMetrics first = new BarMetrics();
+        BarMetrics second = new BarMetrics();
+        first.onQueued();
+        second.onQueued();
+        assertEquals(1, first.getQueueDepth());
+        assertEquals(globalBefore + 2, BarMetrics.getGlobal().getQueueDepth());
+        first.onDequeued();
+        second.onDequeued();
+        assertEquals(0, first.getQueueDepth());
+        assertEquals(1, first.getMaxQueueDepth());
+        assertEquals(globalBefore, BarMetrics.getGlobal().getQueueDepth());
+    }
+
+    @Test
+    public void dequeueWithoutQueue_ignored() throws Exception {
+        final long globalBefore = BarMetrics.getGlobal().getQueueDepth();
+        BarMetrics metrics = new BarMetrics();
+        //开启统计之前入队的刷新
+        metrics.onDequeued();
+        assertEquals(0, metrics.getQueueDepth());
+        assertEquals(globalBefore, BarMetrics.getGlobal().getQueueDepth());
+    }
+
+    @Test
+    public void release_removesPendingQueueDepthFromGlobal() throws Exception {
+        final long globalBefore = BarMetrics.getGlobal().getQueueDepth();
+        BarMetrics metrics = new BarMetrics();
+        metrics.onQueued();
+        assertEquals(globalBefore + 1, BarMetrics.getGlobal().getQueueDepth());
+        //统计被关闭, 等待中的刷新不会再被这个实例取出
+        metrics.release();
+        assertEquals(0, metrics.getQueueDepth());
+        assertEquals(globalBefore, BarMetrics.getGlobal().getQueueDepth());
+        metrics.release();
+        assertEquals(globalBefore, BarMetrics.getGlobal().getQueueDepth());
+    }
+
+    @Test
+    public void reset_keepsPendingQueueDepth() throws Exception {
+        BarMetrics metrics = new BarMetrics();
+        metrics.onQueued();
+        metrics.onDraw(50);
+        metrics.onInvalidate();
+        metrics.reset();
+        assertEquals(0, metrics.getDrawCount());
+        assertEquals(0, metrics.getInvalidateCount());
+        assertEquals(1, metrics.getQueueDepth());
+        metrics.onDequeued();
+    }
+}
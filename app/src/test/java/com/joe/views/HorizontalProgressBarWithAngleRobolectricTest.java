@@ -0,0 +1,93 @@
+package com.joe.views;
+
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * HorizontalProgressBarWithAngle 刷新次数测试(Robolectric, 不需要设备)
+ * <p>
+ * 通过{@link BarMetrics}统计每次setProgress引起的刷新, 进度边缘所在的像素没有变化时不能刷新.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class HorizontalProgressBarWithAngleRobolectricTest {
+    private static final int WIDTH = 300;
+    private static final int HEIGHT = 20;
+
+    private HorizontalProgressBarWithAngle mBar;
+
+    @Before
+    public void setUp() throws Exception {
+        mBar = new HorizontalProgressBarWithAngle(RuntimeEnvironment.application);
+        mBar.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        mBar.layout(0, 0, WIDTH, HEIGHT);
+        mBar.setMetricsEnabled(true);
+    }
+
+    @Test
+    public void sameProgress_noInvalidate() throws Exception {
+        mBar.setMax(100);
+        mBar.setProgress(40);
+        final long invalidates = mBar.getMetrics().getInvalidateCount();
+        for (int i = 0; i < 100; i++) {
+            mBar.setProgress(40);
+        }
+        assertEquals(invalidates, mBar.getMetrics().getInvalidateCount());
+    }
+
+    @Test
+    public void subPixelUpdates_atMostOneInvalidatePerPixel() throws Exception {
+        final int max = 100000;
+        mBar.setMax(max);
+        mBar.getMetrics().reset();
+        int edges = 0;
+        int lastEdge = 0;
+        for (int progress = 1; progress <= max; progress++) {
+            mBar.setProgress(progress);
+            final int edge = ProgressGeometry.computeEdge(0, max, progress, WIDTH);
+            if (edge != lastEdge) {
+                edges++;
+                lastEdge = edge;
+            }
+        }
+        final long invalidates = mBar.getMetrics().getInvalidateCount();
+        assertTrue("invalidates=" + invalidates, invalidates > 0);
+        assertTrue("invalidates=" + invalidates + " edges=" + edges, invalidates <= edges);
+        assertTrue(edges <= WIDTH);
+    }
+
+    @Test
+    public void longProgress_largeRangeStillMoves() throws Exception {
+        mBar.setMaxLong(Long.MAX_VALUE);
+        mBar.getMetrics().reset();
+        mBar.setProgressLong(Long.MAX_VALUE / 2);
+        assertTrue(mBar.getMetrics().getInvalidateCount() > 0);
+        assertEquals(Long.MAX_VALUE / 2, mBar.getProgressLong());
+    }
+
+    @Test
+    public void updateCounts_followMetrics() throws Exception {
+        mBar.setMax(100);
+        for (int i = 1; i <= 10; i++) {
+            mBar.setProgress(i);
+        }
+        final BarMetrics metrics = mBar.getMetrics();
+        assertTrue(mBar.getReceivedUpdateCount() > 0);
+        assertEquals(metrics.getUpdatesReceived(), mBar.getReceivedUpdateCount());
+        assertEquals(metrics.getUpdatesApplied(), mBar.getAppliedUpdateCount());
+        assertEquals(metrics.getUpdatesCoalesced(), mBar.getCoalescedUpdateCount());
+
+        mBar.setMetricsEnabled(false);
+        assertEquals(0, mBar.getReceivedUpdateCount());
+        assertEquals(0, mBar.getCoalescedUpdateCount());
+    }
+}
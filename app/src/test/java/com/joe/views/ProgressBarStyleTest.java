@@ -0,0 +1,69 @@
+package com.joe.views;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * ProgressBarStyle 单元测试
+ */
+public class ProgressBarStyleTest {
+
+    @Test
+    public void defaults_matchViewDefaults() throws Exception {
+        ProgressBarStyle style = ProgressBarStyle.DEFAULT;
+        assertEquals(0, style.getMin());
+        assertEquals(100, style.getMax());
+        assertEquals(0, style.getProgress());
+        assertEquals(24, style.getMinWidth());
+        assertEquals(48, style.getMaxHeight());
+        assertEquals(0xFF00CDB0, style.getProgressColor());
+        assertEquals(8, style.getCornerRadius());
+        assertEquals(ProgressGeometry.DEFAULT_TIP_ANGLE, style.getTipAngle(), 0);
+        assertFalse(style.isIndeterminate());
+    }
+
+    @Test
+    public void build_clampsProgressIntoRange() throws Exception {
+        ProgressBarStyle style = new ProgressBarStyle.Builder()
+                .setRange(10, 50)
+                .setProgress(80)
+                .setSecondaryProgress(-5)
+                .build();
+        assertEquals(50, style.getProgress());
+        assertEquals(10, style.getSecondaryProgress());
+    }
+
+    @Test
+    public void build_maxBelowMinCollapsesRange() throws Exception {
+        ProgressBarStyle style = new ProgressBarStyle.Builder().setRange(30, 20).setProgress(25).build();
+        assertEquals(30, style.getMin());
+        assertEquals(30, style.getMax());
+        assertEquals(30, style.getProgress());
+    }
+
+    @Test
+    public void buildUpon_copiesAndLeavesOriginalUnchanged() throws Exception {
+        ProgressBarStyle base = new ProgressBarStyle.Builder()
+                .setBarColor(0xff112233)
+                .setCornerRadius(12)
+                .setTipAngle(60)
+                .build();
+        ProgressBarStyle derived = base.buildUpon().setProgressColor(0xff445566).build();
+        assertEquals(0xff112233, derived.getBarColor());
+        assertEquals(12, derived.getCornerRadius());
+        assertEquals(60f, derived.getTipAngle(), 0);
+        assertEquals(0xff445566, derived.getProgressColor());
+        assertEquals(0xFF00CDB0, base.getProgressColor());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tipAngle_outOfRangeRejected() throws Exception {
+        new ProgressBarStyle.Builder().setTipAngle(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cornerRadius_negativeRejected() throws Exception {
+        new ProgressBarStyle.Builder().setCornerRadius(-1);
+    }
+}
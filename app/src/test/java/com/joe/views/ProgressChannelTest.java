@@ -0,0 +1,180 @@
+package com.joe.views;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 进度统计的通道和输入流 单元测试
+ */
+public class ProgressChannelTest {
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * 内存中的数据源, 每次读取复制到调用者的缓冲区
+     */
+    private static class MemoryChannel implements ReadableByteChannel {
+        private final ByteBuffer mData;
+        private boolean mOpen = true;
+
+        MemoryChannel(byte[] data) {
+            mData = ByteBuffer.wrap(data);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            if (!mData.hasRemaining()) {
+                return -1;
+            }
+            final int count = Math.min(dst.remaining(), mData.remaining());
+            final int limit = mData.limit();
+            mData.limit(mData.position() + count);
+            dst.put(mData);
+            mData.limit(limit);
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return mOpen;
+        }
+
+        @Override
+        public void close() {
+            mOpen = false;
+        }
+    }
+
+    /**
+     * 丢弃写入数据的通道
+     */
+    private static class NullChannel implements WritableByteChannel {
+        long mWritten;
+
+        @Override
+        public int write(ByteBuffer src) {
+            final int count = src.remaining();
+            src.position(src.limit());
+            mWritten += count;
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class RecordingSink implements ProgressSink {
+        final List<Long> mReports = new ArrayList<>();
+
+        @Override
+        public void onProgress(long transferred) {
+            mReports.add(transferred);
+        }
+    }
+
+    private static long copy(ReadableByteChannel in, WritableByteChannel out, ByteBuffer buffer)
+            throws IOException {
+        long total = 0;
+        buffer.clear();
+        while (in.read(buffer) >= 0) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                total += out.write(buffer);
+            }
+            buffer.clear();
+        }
+        return total;
+    }
+
+    @Test
+    public void readChannel_samplesByBytesAndReportsFinalValue() throws Exception {
+        final int size = 1024 * 1024 + 123;
+        final byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) (i * 31);
+        }
+        RecordingSink sink = new RecordingSink();
+        //每64KB通知一次
+        ProgressSampler sampler = new ProgressSampler(sink, 64 * 1024, 0);
+        ProgressReadableByteChannel channel = new ProgressReadableByteChannel(
+                new MemoryChannel(data), sampler);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+        assertEquals(size, copy(channel, Channels.newChannel(out),
+                ByteBuffer.allocate(BUFFER_SIZE)));
+        channel.close();
+
+        //数据原样通过
+        assertArrayEquals(data, out.toByteArray());
+
+        assertEquals(size, channel.getTransferred());
+        assertEquals(size, (long) sink.mReports.get(sink.mReports.size() - 1));
+        assertTrue("reports=" + sink.mReports.size(), sink.mReports.size() <= size / (64 * 1024) + 1);
+        for (int i = 1; i < sink.mReports.size() - 1; i++) {
+            assertTrue(sink.mReports.get(i) - sink.mReports.get(i - 1) >= 64 * 1024);
+        }
+    }
+
+    @Test
+    public void writeChannel_countsWrittenBytes() throws Exception {
+        RecordingSink sink = new RecordingSink();
+        NullChannel out = new NullChannel();
+        ProgressWritableByteChannel channel = new ProgressWritableByteChannel(out,
+                new ProgressSampler(sink, 1, 0));
+        copy(new MemoryChannel(new byte[100000]), channel, ByteBuffer.allocate(BUFFER_SIZE));
+        channel.close();
+        assertEquals(100000, channel.getTransferred());
+        assertEquals(100000, out.mWritten);
+        assertEquals(100000L, (long) sink.mReports.get(sink.mReports.size() - 1));
+    }
+
+    @Test
+    public void inputStream_countsReadAndSkippedBytes() throws Exception {
+        RecordingSink sink = new RecordingSink();
+        byte[] data = new byte[5000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        ProgressInputStream in = new ProgressInputStream(new ByteArrayInputStream(data),
+                new ProgressSampler(sink, 1000, 0));
+        assertEquals(0, in.read());
+        assertEquals(100, in.skip(100));
+        byte[] buffer = new byte[1024];
+        int read;
+        int total = 101;
+        while ((read = in.read(buffer)) > 0) {
+            assertEquals((byte) total, buffer[0]);
+            total += read;
+        }
+        assertEquals(5000, total);
+        assertEquals(5000, in.getTransferred());
+        assertEquals(5000L, (long) sink.mReports.get(sink.mReports.size() - 1));
+        assertFalse(in.markSupported());
+    }
+
+    @Test
+    public void finish_reportsOnlyOnce() throws Exception {
+        RecordingSink sink = new RecordingSink();
+        ProgressSampler sampler = new ProgressSampler(sink, 1000, 0);
+        sampler.add(10);
+        sampler.finish();
+        sampler.finish();
+        assertEquals(1, sink.mReports.size());
+        assertEquals(10L, (long) sink.mReports.get(0));
+    }
+}
@@ -0,0 +1,44 @@
+package com.joe.views;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * ProgressEdgeFilter 单元测试
+ */
+public class ProgressEdgeFilterTest {
+
+    @Test
+    public void sameEdge_changedWithoutRefresh() throws Exception {
+        ProgressState state = new ProgressState(0, 10000);
+        ProgressEdgeFilter filter = new ProgressEdgeFilter(state);
+        filter.setWidth(100);
+        //每个像素100个进度
+        assertEquals(ProgressEdgeFilter.REFRESH, filter.setProgress(150));
+        assertEquals(ProgressEdgeFilter.CHANGED, filter.setProgress(160));
+        assertEquals(160, state.getProgress());
+        assertEquals(ProgressEdgeFilter.UNCHANGED, filter.setProgress(160));
+        assertEquals(ProgressEdgeFilter.REFRESH, filter.setProgress(260));
+    }
+
+    @Test
+    public void unknownWidth_alwaysRefresh() throws Exception {
+        ProgressEdgeFilter filter = new ProgressEdgeFilter(new ProgressState(0, 10000));
+        assertEquals(ProgressEdgeFilter.REFRESH, filter.setProgress(1));
+        assertEquals(ProgressEdgeFilter.REFRESH, filter.setProgress(2));
+        assertEquals(ProgressEdgeFilter.REFRESH, filter.setSecondaryProgress(2));
+    }
+
+    @Test
+    public void setWidth_syncsToCurrentProgress() throws Exception {
+        ProgressState state = new ProgressState(0, 10000);
+        ProgressEdgeFilter filter = new ProgressEdgeFilter(state);
+        state.setProgress(5000);
+        state.setSecondaryProgress(7000);
+        filter.setWidth(100);
+        assertEquals(ProgressEdgeFilter.CHANGED, filter.setProgress(5050));
+        assertEquals(ProgressEdgeFilter.CHANGED, filter.setSecondaryProgress(7050));
+        assertEquals(ProgressEdgeFilter.REFRESH, filter.setSecondaryProgress(7100));
+    }
+}
@@ -0,0 +1,143 @@
+package com.joe.views;
+
+import org.junit.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.InputStream;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.*;
+
+/**
+ * 进度条几何形状的快照测试
+ * <p>
+ * 按照不同尺寸、范围和进度, 用{@link ProgressGeometry}计算进度边缘和尖角多边形, 用AWT不抗锯齿地栅格化到一张图片,
+ * 与src/test/resources/snapshots下的快照逐像素比较. 只检查几何计算(ProgressAngleDrawable使用同样的顶点),
+ * 不经过Drawable的绘制; Drawable的实际绘制结果由androidTest中的ProgressAngleDrawableTest检查.
+ * <p>
+ * 形状有意修改后, 使用-Dsnapshot.update=true运行测试重新生成快照.
+ */
+public class ProgressGeometrySnapshotTest {
+    private static final String SNAPSHOT = "progress_geometry.png";
+    private static final File SNAPSHOT_DIR = new File("src/test/resources/snapshots");
+    private static final File FAILURE_DIR = new File("build/snapshot-failures");
+    private static final int GAP = 2;
+    private static final int BAR_COLOR = 0xFF808080;
+    private static final int PROGRESS_COLOR = 0xFFFF0000;
+
+    /**
+     * 尺寸: 宽度、高度、圆角半径
+     */
+    private static final int[][] SIZES = {
+            { 120, 12, 4 },
+            { 301, 20, 8 },
+            { 64, 48, 30 },
+            { 1080, 9, 0 },
+    };
+
+    /**
+     * 范围和进度: min, max, progress
+     */
+    private static final long[][] VALUES = {
+            { 0, 100, 0 },
+            { 0, 100, 1 },
+            { 0, 100, 33 },
+            { 0, 100, 50 },
+            { 0, 100, 99 },
+            { 0, 100, 100 },
+            { 0, 7, 3 },
+            { -50, 50, 0 },
+            { 0, 10000, 9999 },
+            //旧实现中getMeasuredWidth() / mMax * mProgress的整数除法在这些范围下结果为0
+            { 0, 1000000, 999999 },
+            { 0, Long.MAX_VALUE, Long.MAX_VALUE / 3 },
+    };
+
+    @Test
+    public void shapesMatchSnapshot() throws Exception {
+        final BufferedImage actual = renderMatrix();
+        if (Boolean.getBoolean("snapshot.update")) {
+            assertTrue(SNAPSHOT_DIR.isDirectory() || SNAPSHOT_DIR.mkdirs());
+            ImageIO.write(actual, "png", new File(SNAPSHOT_DIR, SNAPSHOT));
+            return;
+        }
+        final BufferedImage snapshot;
+        try (InputStream in = getClass().getResourceAsStream("/snapshots/" + SNAPSHOT)) {
+            assertNotNull("missing snapshot " + SNAPSHOT, in);
+            snapshot = ImageIO.read(in);
+        }
+        assertEquals(snapshot.getWidth(), actual.getWidth());
+        assertEquals(snapshot.getHeight(), actual.getHeight());
+        int mismatches = 0;
+        String first = null;
+        for (int y = 0; y < snapshot.getHeight(); y++) {
+            for (int x = 0; x < snapshot.getWidth(); x++) {
+                if (snapshot.getRGB(x, y) != actual.getRGB(x, y)) {
+                    if (first == null) {
+                        first = "(" + x + ", " + y + ")";
+                    }
+                    mismatches++;
+                }
+            }
+        }
+        if (mismatches > 0) {
+            //保存实际结果, 方便对比
+            FAILURE_DIR.mkdirs();
+            ImageIO.write(actual, "png", new File(FAILURE_DIR, SNAPSHOT));
+        }
+        assertEquals("pixels differ from snapshot, first at " + first, 0, mismatches);
+    }
+
+    /**
+     * 所有尺寸和进度的组合从上到下排列在一张图片中
+     */
+    private static BufferedImage renderMatrix() {
+        int width = 0;
+        int height = 0;
+        for (int[] size : SIZES) {
+            width = Math.max(width, size[0]);
+            height += (size[1] + GAP) * VALUES.length;
+        }
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D graphics = image.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+        final float[] vertices = new float[ProgressGeometry.MAX_VERTICES * 2];
+        int top = 0;
+        for (int[] size : SIZES) {
+            for (long[] value : VALUES) {
+                renderBar(graphics, vertices, top, size[0], size[1], size[2],
+                        value[0], value[1], value[2]);
+                top += size[1] + GAP;
+            }
+        }
+        graphics.dispose();
+        return image;
+    }
+
+    private static void renderBar(Graphics2D graphics, float[] vertices, int top, int width,
+                                  int height, int radius, long min, long max, long progress) {
+        graphics.setColor(new Color(BAR_COLOR, true));
+        graphics.fillRect(0, top, width, height);
+        final int edge = ProgressGeometry.computeEdge(min, max, progress, width);
+        if (edge <= 0) {
+            return;
+        }
+        final float slant = ProgressGeometry.tipSlant(height, ProgressGeometry.DEFAULT_TIP_ANGLE);
+        final int count = ProgressGeometry.buildRunPolygon(vertices, 0, edge,
+                edge >= width ? width : Float.MAX_VALUE, height, slant, radius);
+        final Path2D.Float path = new Path2D.Float();
+        path.moveTo(vertices[0], top + vertices[1]);
+        for (int i = 1; i < count; i++) {
+            path.lineTo(vertices[i * 2], top + vertices[i * 2 + 1]);
+        }
+        path.closePath();
+        graphics.setColor(new Color(PROGRESS_COLOR, true));
+        graphics.fill(path);
+    }
+}
@@ -0,0 +1,179 @@
+package com.joe.views;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * ProgressGeometry 单元测试
+ */
+public class ProgressGeometryTest {
+
+    /**
+     * floor(width * (progress - min) / (max - min))的精确值
+     */
+    private static int expectedEdge(long min, long max, long progress, int width) {
+        if (progress <= min || max <= min) {
+            return 0;
+        }
+        if (progress >= max) {
+            return width;
+        }
+        BigInteger offset = BigInteger.valueOf(progress).subtract(BigInteger.valueOf(min));
+        BigInteger span = BigInteger.valueOf(max).subtract(BigInteger.valueOf(min));
+        return offset.multiply(BigInteger.valueOf(width)).divide(span).intValue();
+    }
+
+    @Test
+    public void computeEdge_exhaustiveSmallRanges() throws Exception {
+        for (int width = 1; width <= 64; width++) {
+            for (int max = 1; max <= 200; max++) {
+                for (int progress = -1; progress <= max + 1; progress++) {
+                    assertEquals("width=" + width + " max=" + max + " progress=" + progress,
+                            expectedEdge(0, max, progress, width),
+                            ProgressGeometry.computeEdge(0, max, progress, width));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void computeEdge_largeRangesAreExact() throws Exception {
+        final Random random = new Random(42);
+        final int[] widths = { 1, 33, 720, 1080, 4096, 65535, 1 << 20, Integer.MAX_VALUE };
+        for (int i = 0; i < 200000; i++) {
+            final long max = random.nextLong() >>> random.nextInt(63);
+            if (max <= 0) {
+                continue;
+            }
+            final long progress = (random.nextLong() >>> 1) % max;
+            final int width = widths[i % widths.length];
+            assertEquals("max=" + max + " progress=" + progress + " width=" + width,
+                    expectedEdge(0, max, progress, width),
+                    ProgressGeometry.computeEdge(0, max, progress, width));
+        }
+    }
+
+    @Test
+    public void computeEdge_nearLongLimits() throws Exception {
+        final long max = Long.MAX_VALUE;
+        assertEquals(0, ProgressGeometry.computeEdge(0, max, 1, 1080));
+        assertEquals(1079, ProgressGeometry.computeEdge(0, max, max - 1, 1080));
+        assertEquals(540, ProgressGeometry.computeEdge(0, max, max / 2 + 1, 1080));
+        assertEquals(expectedEdge(-1000, max - 1, 12345678901234L, Integer.MAX_VALUE),
+                ProgressGeometry.computeEdge(-1000, max - 1, 12345678901234L, Integer.MAX_VALUE));
+        //范围超过long时允许一个像素的误差
+        final int edge = ProgressGeometry.computeEdge(Long.MIN_VALUE, Long.MAX_VALUE, 0, 1000);
+        assertTrue("edge=" + edge, Math.abs(edge - 500) <= 1);
+    }
+
+    @Test
+    public void computeEdge_monotonicInProgress() throws Exception {
+        final long max = 10L * 1024 * 1024 * 1024;
+        final int width = 2560;
+        int previous = 0;
+        for (long progress = 0; progress <= max; progress += max / 100003) {
+            final int edge = ProgressGeometry.computeEdge(0, max, progress, width);
+            assertTrue(edge >= previous);
+            assertTrue(edge <= width);
+            previous = edge;
+        }
+    }
+
+    @Test
+    public void computeEdge_wideBarLargeMax_doesNotTruncateToZero() throws Exception {
+        //width / max * progress在整数运算中是0
+        assertEquals(4999, ProgressGeometry.computeEdge(0, 1000000, 999999, 5000));
+        assertEquals(2500, ProgressGeometry.computeEdge(0, 1000000, 500000, 5000));
+    }
+
+    @Test
+    public void computeEdge_scale() throws Exception {
+        assertEquals(0, ProgressGeometry.computeEdge(-0.5f, 100));
+        assertEquals(100, ProgressGeometry.computeEdge(1.5f, 100));
+        assertEquals(50, ProgressGeometry.computeEdge(0.5f, 100));
+    }
+
+    @Test
+    public void tipSlant_defaultAngleIsThirdOfHeight() throws Exception {
+        for (int height = 1; height <= 512; height++) {
+            assertEquals(height / 3f,
+                    ProgressGeometry.tipSlant(height, ProgressGeometry.DEFAULT_TIP_ANGLE),
+                    height * 1e-6f);
+        }
+        assertEquals(0f, ProgressGeometry.tipSlant(30, 90), 0);
+        assertEquals(30f, ProgressGeometry.tipSlant(30, 45), 1e-4f);
+    }
+
+    @Test
+    public void buildRunPolygon_squareTip() throws Exception {
+        float[] out = new float[ProgressGeometry.MAX_VERTICES * 2];
+        int count = ProgressGeometry.buildRunPolygon(out, 0, 100, 300, 30, 10, 0);
+        assertEquals(4, count);
+        assertArrayEquals(new float[] { 0, 0, 100, 0, 90, 30, 0, 30 },
+                Arrays.copyOf(out, 8), 0);
+    }
+
+    @Test
+    public void buildRunPolygon_middleRunIsParallelogram() throws Exception {
+        float[] out = new float[ProgressGeometry.MAX_VERTICES * 2];
+        int count = ProgressGeometry.buildRunPolygon(out, 120, 200, 300, 30, 10, 8);
+        assertEquals(4, count);
+        assertArrayEquals(new float[] { 120, 0, 200, 0, 190, 30, 110, 30 },
+                Arrays.copyOf(out, 8), 0);
+    }
+
+    @Test
+    public void buildRunPolygon_verticesInsideBoundsAcrossSizes() throws Exception {
+        float[] out = new float[ProgressGeometry.MAX_VERTICES * 2];
+        for (int height = 0; height <= 64; height += 4) {
+            final float slant = ProgressGeometry.tipSlant(height, ProgressGeometry.DEFAULT_TIP_ANGLE);
+            for (int radius = 0; radius <= 40; radius += 5) {
+                for (int edge = 0; edge <= 400; edge += 7) {
+                    final int count = ProgressGeometry.buildRunPolygon(out, 0, edge, 400, height,
+                            slant, radius);
+                    assertTrue(count >= 3 && count <= ProgressGeometry.MAX_VERTICES);
+                    for (int i = 0; i < count; i++) {
+                        final float x = out[i * 2];
+                        final float y = out[i * 2 + 1];
+                        assertFalse(Float.isNaN(x) || Float.isNaN(y));
+                        assertTrue("x=" + x, x >= -1e-3f && x <= Math.max(edge, 0) + 1e-3f);
+                        assertTrue("y=" + y, y >= -1e-3f && y <= height + 1e-3f);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void buildRunPolygon_fullRunHasFourRoundCorners() throws Exception {
+        float[] out = new float[ProgressGeometry.MAX_VERTICES * 2];
+        int count = ProgressGeometry.buildRunPolygon(out, 0, 300, 300, 30, 10, 8);
+        assertEquals(ProgressGeometry.MAX_VERTICES, count);
+        //左上圆角从(0, r)开始, 到(r, 0)结束
+        assertEquals(0f, out[0], 1e-5f);
+        assertEquals(8f, out[1], 1e-5f);
+        final int end = ProgressGeometry.CORNER_SEGMENTS;
+        assertEquals(8f, out[end * 2], 1e-5f);
+        assertEquals(0f, out[end * 2 + 1], 1e-5f);
+    }
+
+    @Test
+    public void buildRunPolygon_clockwise() throws Exception {
+        float[] out = new float[ProgressGeometry.MAX_VERTICES * 2];
+        for (int edge = 1; edge <= 300; edge++) {
+            int count = ProgressGeometry.buildRunPolygon(out, 0, edge, 300, 30, 10, 8);
+            //屏幕坐标系(y向下)中顺时针的多边形有向面积为正
+            double area = 0;
+            for (int i = 0; i < count; i++) {
+                final int j = (i + 1) % count;
+                area += out[i * 2] * out[j * 2 + 1] - out[j * 2] * out[i * 2 + 1];
+            }
+            assertTrue("edge=" + edge + " area=" + area, area >= 0);
+        }
+    }
+}
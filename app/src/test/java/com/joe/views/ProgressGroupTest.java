@@ -0,0 +1,126 @@
+package com.joe.views;
+
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * ProgressGroup 单元测试(Robolectric)
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class ProgressGroupTest {
+    private ProgressGroup mGroup;
+
+    @Before
+    public void setUp() throws Exception {
+        mGroup = new ProgressGroup(RuntimeEnvironment.application);
+        mGroup.setRowHeight(10, 4);
+        mGroup.setRowCount(50);
+        mGroup.setMax(1000);
+    }
+
+    @Test
+    public void measure_heightCoversAllRows() throws Exception {
+        mGroup.measure(View.MeasureSpec.makeMeasureSpec(300, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        assertEquals(300, mGroup.getMeasuredWidth());
+        assertEquals(50 * 10 + 49 * 4, mGroup.getMeasuredHeight());
+    }
+
+    @Test
+    public void bulkUpdate_storesClampedValues() throws Exception {
+        mGroup.setProgress(new int[] { 0, 7, 49 }, new long[] { 500, -3, 5000 });
+        assertEquals(500, mGroup.getProgress(0));
+        assertEquals(0, mGroup.getProgress(7));
+        assertEquals(1000, mGroup.getProgress(49));
+        assertEquals(0, mGroup.getProgress(1));
+    }
+
+    @Test
+    public void setRowCount_keepsExistingRows() throws Exception {
+        mGroup.setProgress(3, 300);
+        mGroup.setRowCount(60);
+        assertEquals(300, mGroup.getProgress(3));
+        mGroup.setRowCount(2);
+        assertEquals(2, mGroup.getRowCount());
+    }
+
+    @Test
+    public void outOfRangeRows_ignored() throws Exception {
+        //例如与setRowCount并发时已经被删除的行
+        mGroup.setProgress(50, 100);
+        mGroup.setProgress(-1, 100);
+        mGroup.setProgress(new int[] { 2, 60, -5 }, new long[] { 200, 300, 400 });
+        assertEquals(200, mGroup.getProgress(2));
+        assertEquals(50, mGroup.getRowCount());
+    }
+
+    @Test
+    public void concurrentWritesDuringSetRowCount_lastValueKept() throws Exception {
+        final int writers = 4;
+        final int rowsPerWriter = 10;
+        final long last = 1000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(writers);
+        for (int w = 0; w < writers; w++) {
+            final int firstRow = w * rowsPerWriter;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (long value = 1; value <= last; value++) {
+                        for (int row = firstRow; row < firstRow + rowsPerWriter; row++) {
+                            mGroup.setProgress(row, value);
+                        }
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        //写入的行一直保留, 只增减后面的行
+        while (done.getCount() > 0) {
+            mGroup.setRowCount(mGroup.getRowCount() == 50 ? 80 : 50);
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (int row = 0; row < writers * rowsPerWriter; row++) {
+            assertEquals("row " + row, last, mGroup.getProgress(row));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void bulkUpdate_mismatchedArraysRejected() throws Exception {
+        mGroup.setProgress(new int[] { 0, 1 }, new long[] { 1 });
+    }
+
+    @Test
+    public void drawable_callbackIsGroup() throws Exception {
+        //通过getProgressDrawable修改外观后由回调刷新
+        assertSame(mGroup, mGroup.getProgressDrawable().getCallback());
+    }
+
+    @Test
+    public void computeRow_clampsToRowRange() throws Exception {
+        //行高10, 行间距4, 上边距5
+        assertEquals(0, ProgressGroup.computeRow(0, 5, 14, 50));
+        assertEquals(0, ProgressGroup.computeRow(18, 5, 14, 50));
+        assertEquals(1, ProgressGroup.computeRow(19, 5, 14, 50));
+        assertEquals(49, ProgressGroup.computeRow(100000, 5, 14, 50));
+        assertEquals(-1, ProgressGroup.computeRow(0, 0, 14, 0));
+    }
+}
@@ -0,0 +1,185 @@
+package com.joe.views;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.util.Scheduler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * ProgressNotifier 限速测试(Robolectric, 不需要设备)
+ * <p>
+ * 暂停主线程的调度器, 手动推进时钟: 一段时间内的连续更新每个最小间隔最多通知一次, 最后一次更新总会通知.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class ProgressNotifierRobolectricTest {
+    /**
+     * 每秒10次, 最小间隔100ms
+     */
+    private static final int MAX_PER_SECOND = 10;
+    private static final long INTERVAL_MILLIS = 100;
+
+    private Scheduler mScheduler;
+    /**
+     * 最近一次更新的值(回调时读取, 模拟通知最新的进度)
+     */
+    private int mLatest;
+
+    /**
+     * 手动执行的Executor
+     */
+    private static class QueueExecutor implements Executor {
+        final ArrayDeque<Runnable> mQueue = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            mQueue.add(command);
+        }
+
+        void runAll() {
+            Runnable runnable;
+            while ((runnable = mQueue.poll()) != null) {
+                runnable.run();
+            }
+        }
+    }
+
+    /**
+     * 记录每次回调的时间、合并次数和当时的最新值
+     */
+    private class RecordingTarget implements ProgressNotifier.Target {
+        final List<Long> mTimes = new ArrayList<>();
+        final List<Integer> mFolded = new ArrayList<>();
+        final List<Integer> mValues = new ArrayList<>();
+
+        @Override
+        public void onDispatch(int foldedUpdates) {
+            mTimes.add(mScheduler.getCurrentTime());
+            mFolded.add(foldedUpdates);
+            mValues.add(mLatest);
+        }
+
+        int totalFolded() {
+            int total = 0;
+            for (int folded : mFolded) {
+                total += folded;
+            }
+            return total;
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        mScheduler = Robolectric.getForegroundThreadScheduler();
+        mScheduler.pause();
+        //时钟从超过一个间隔的位置开始, 第一次通知不受限速影响
+        mScheduler.advanceBy(1, TimeUnit.SECONDS);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mScheduler.unPause();
+    }
+
+    private void update(ProgressNotifier notifier, int value) {
+        mLatest = value;
+        notifier.onUpdate();
+    }
+
+    @Test
+    public void burstOnUiThread_atMostOneDeliveryPerInterval() throws Exception {
+        RecordingTarget target = new RecordingTarget();
+        ProgressNotifier notifier = new ProgressNotifier(target, MAX_PER_SECOND, null);
+        //1秒内每毫秒更新一次
+        for (int i = 1; i <= 1000; i++) {
+            update(notifier, i);
+            mScheduler.advanceBy(1, TimeUnit.MILLISECONDS);
+        }
+        mScheduler.advanceToLastPostedRunnable();
+
+        assertTrue("deliveries=" + target.mTimes.size(),
+                target.mTimes.size() <= 1000 / INTERVAL_MILLIS + 1);
+        for (int i = 1; i < target.mTimes.size(); i++) {
+            assertTrue("interval=" + (target.mTimes.get(i) - target.mTimes.get(i - 1)),
+                    target.mTimes.get(i) - target.mTimes.get(i - 1) >= INTERVAL_MILLIS);
+        }
+        assertEquals(1000, target.totalFolded());
+        assertEquals(1000, (int) target.mValues.get(target.mValues.size() - 1));
+    }
+
+    @Test
+    public void updateWithinInterval_postedDelayedUntilIntervalEnds() throws Exception {
+        RecordingTarget target = new RecordingTarget();
+        ProgressNotifier notifier = new ProgressNotifier(target, MAX_PER_SECOND, null);
+        update(notifier, 1);
+        mScheduler.runOneTask();
+        assertEquals(1, target.mTimes.size());
+        final long first = target.mTimes.get(0);
+
+        mScheduler.advanceBy(10, TimeUnit.MILLISECONDS);
+        update(notifier, 2);
+        update(notifier, 3);
+        mScheduler.advanceBy(INTERVAL_MILLIS - 11, TimeUnit.MILLISECONDS);
+        assertEquals(1, target.mTimes.size());
+
+        mScheduler.advanceBy(1, TimeUnit.MILLISECONDS);
+        assertEquals(2, target.mTimes.size());
+        assertEquals(first + INTERVAL_MILLIS, (long) target.mTimes.get(1));
+        assertEquals(2, (int) target.mFolded.get(1));
+        assertEquals(3, (int) target.mValues.get(1));
+    }
+
+    @Test
+    public void updateWithinInterval_executorRunsAfterIntervalEnds() throws Exception {
+        QueueExecutor executor = new QueueExecutor();
+        RecordingTarget target = new RecordingTarget();
+        ProgressNotifier notifier = new ProgressNotifier(target, MAX_PER_SECOND, executor);
+        //间隔已经过去, 直接交给Executor
+        update(notifier, 1);
+        assertEquals(1, executor.mQueue.size());
+        executor.runAll();
+        assertEquals(1, target.mTimes.size());
+
+        mScheduler.advanceBy(10, TimeUnit.MILLISECONDS);
+        for (int i = 2; i <= 50; i++) {
+            update(notifier, i);
+        }
+        //间隔结束前不交给Executor
+        assertTrue(executor.mQueue.isEmpty());
+        mScheduler.advanceBy(INTERVAL_MILLIS - 11, TimeUnit.MILLISECONDS);
+        assertTrue(executor.mQueue.isEmpty());
+
+        mScheduler.advanceBy(1, TimeUnit.MILLISECONDS);
+        assertEquals(1, executor.mQueue.size());
+        executor.runAll();
+        assertEquals(2, target.mTimes.size());
+        assertEquals(49, (int) target.mFolded.get(1));
+        assertEquals(50, (int) target.mValues.get(1));
+    }
+
+    @Test
+    public void cancel_dropsDelayedCallback() throws Exception {
+        QueueExecutor executor = new QueueExecutor();
+        RecordingTarget target = new RecordingTarget();
+        ProgressNotifier notifier = new ProgressNotifier(target, MAX_PER_SECOND, executor);
+        update(notifier, 1);
+        executor.runAll();
+        update(notifier, 2);
+        notifier.cancel();
+        mScheduler.advanceBy(INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        executor.runAll();
+        assertEquals(1, target.mTimes.size());
+    }
+}
@@ -0,0 +1,136 @@
+package com.joe.views;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * ProgressNotifier 单元测试
+ */
+public class ProgressNotifierTest {
+
+    /**
+     * 手动执行的Executor
+     */
+    private static class QueueExecutor implements Executor {
+        final ArrayDeque<Runnable> mQueue = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            mQueue.add(command);
+        }
+
+        void runAll() {
+            Runnable runnable;
+            while ((runnable = mQueue.poll()) != null) {
+                runnable.run();
+            }
+        }
+    }
+
+    private static class RecordingTarget implements ProgressNotifier.Target {
+        final List<Integer> mFolded = new ArrayList<>();
+
+        @Override
+        public void onDispatch(int foldedUpdates) {
+            mFolded.add(foldedUpdates);
+        }
+    }
+
+    @Test
+    public void updatesBeforeDispatch_foldIntoOneCallback() throws Exception {
+        QueueExecutor executor = new QueueExecutor();
+        RecordingTarget target = new RecordingTarget();
+        ProgressNotifier notifier = new ProgressNotifier(target, 0, executor);
+        for (int i = 0; i < 1000; i++) {
+            notifier.onUpdate();
+        }
+        assertEquals(1, executor.mQueue.size());
+        executor.runAll();
+        assertEquals(1, target.mFolded.size());
+        assertEquals(1000, (int) target.mFolded.get(0));
+    }
+
+    @Test
+    public void updateDuringCallback_schedulesNextCallback() throws Exception {
+        final QueueExecutor executor = new QueueExecutor();
+        final AtomicInteger calls = new AtomicInteger();
+        final ProgressNotifier[] holder = new ProgressNotifier[1];
+        holder[0] = new ProgressNotifier(new ProgressNotifier.Target() {
+            @Override
+            public void onDispatch(int foldedUpdates) {
+                if (calls.incrementAndGet() == 1) {
+                    holder[0].onUpdate();
+                    //回调执行期间不会再安排新的回调
+                    assertTrue(executor.mQueue.isEmpty());
+                }
+            }
+        }, 0, executor);
+        holder[0].onUpdate();
+        executor.runAll();
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void cancel_dropsPendingCallback() throws Exception {
+        QueueExecutor executor = new QueueExecutor();
+        RecordingTarget target = new RecordingTarget();
+        ProgressNotifier notifier = new ProgressNotifier(target, 0, executor);
+        notifier.onUpdate();
+        notifier.cancel();
+        notifier.onUpdate();
+        executor.runAll();
+        assertTrue(target.mFolded.isEmpty());
+    }
+
+    @Test
+    public void concurrentProducers_noUpdateLostAndNoConcurrentCallbacks() throws Exception {
+        final int threads = 4;
+        final int updates = 50000;
+        final ExecutorService pool = Executors.newFixedThreadPool(2);
+        final AtomicLong delivered = new AtomicLong();
+        final AtomicInteger inCallback = new AtomicInteger();
+        final AtomicInteger overlaps = new AtomicInteger();
+        final ProgressNotifier notifier = new ProgressNotifier(new ProgressNotifier.Target() {
+            @Override
+            public void onDispatch(int foldedUpdates) {
+                if (inCallback.incrementAndGet() != 1) {
+                    overlaps.incrementAndGet();
+                }
+                delivered.addAndGet(foldedUpdates);
+                inCallback.decrementAndGet();
+            }
+        }, 0, pool);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < updates; i++) {
+                        notifier.onUpdate();
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (delivered.get() < threads * updates && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        pool.shutdown();
+        assertEquals(threads * updates, delivered.get());
+        assertEquals(0, overlaps.get());
+    }
+}
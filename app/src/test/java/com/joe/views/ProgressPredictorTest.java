@@ -0,0 +1,107 @@
+package com.joe.views;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * ProgressPredictor 单元测试
+ */
+public class ProgressPredictorTest {
+    private static final long SECOND = 1000000000L;
+
+    @Test
+    public void steadyRate_glidesToLastValueWithoutOvershoot() throws Exception {
+        ProgressPredictor predictor = new ProgressPredictor(3000);
+        //每2秒报告一次, 速率100/秒
+        for (int i = 0; i <= 5; i++) {
+            assertTrue(predictor.onUpdate(i * 200, 10000, i * 2 * SECOND));
+        }
+        assertEquals(100, predictor.getThroughput(), 1e-6);
+        final long last = 10 * SECOND;
+        //从收到时的预测值800出发, 一个更新间隔内到达真实进度1000
+        assertEquals(800, predictor.predict(last), 1e-6);
+        assertEquals(850, predictor.predict(last + SECOND / 2), 1e-6);
+        assertEquals(900, predictor.predict(last + SECOND), 1e-6);
+        assertEquals(1000, predictor.predict(last + 2 * SECOND), 1e-6);
+        //不超过最近一次的真实进度
+        assertEquals(1000, predictor.predict(last + 10 * SECOND), 1e-6);
+        assertTrue(predictor.isAdvancing(last + SECOND));
+        assertFalse(predictor.isAdvancing(last + 2 * SECOND));
+        //剩余(10000 - 1000) / 100 = 90秒
+        assertEquals(90000, predictor.getRemainingMillis(last));
+    }
+
+    @Test
+    public void slowdown_neverPassesNextReportedValue() throws Exception {
+        ProgressPredictor predictor = new ProgressPredictor(3000);
+        for (int i = 0; i <= 5; i++) {
+            predictor.onUpdate(i * 200, 10000, i * 2 * SECOND);
+        }
+        //下一次报告只前进了10
+        final long next = 12 * SECOND;
+        for (long t = 10 * SECOND; t < next; t += SECOND / 10) {
+            assertTrue(predictor.predict(t) <= 1010);
+        }
+        predictor.onUpdate(1010, 10000, next);
+        for (long t = next; t < next + 4 * SECOND; t += SECOND / 10) {
+            assertTrue(predictor.predict(t) <= 1010);
+        }
+    }
+
+    @Test
+    public void rateChange_smoothedTowardNewRate() throws Exception {
+        ProgressPredictor predictor = new ProgressPredictor(3000);
+        long value = 0;
+        long time = 0;
+        for (int i = 0; i < 5; i++) {
+            predictor.onUpdate(value, 100000, time);
+            value += 100;
+            time += SECOND;
+        }
+        //速率从100/秒变为1000/秒, 估计逐渐接近, 不会一次跳到新速率
+        predictor.onUpdate(value + 900, 100000, time);
+        final double afterOne = predictor.getThroughput();
+        assertTrue("rate=" + afterOne, afterOne > 100 && afterOne < 1000);
+        value += 900;
+        for (int i = 0; i < 30; i++) {
+            value += 1000;
+            time += SECOND;
+            predictor.onUpdate(value, 100000, time);
+        }
+        assertEquals(1000, predictor.getThroughput(), 1);
+    }
+
+    @Test
+    public void prediction_neverExceedsMax() throws Exception {
+        ProgressPredictor predictor = new ProgressPredictor(1000);
+        predictor.onUpdate(0, 1000, 0);
+        predictor.onUpdate(900, 1000, SECOND);
+        //停在真实进度, 不会按照速率推算到最大值
+        assertEquals(900, predictor.predict(2 * SECOND), 1e-6);
+        predictor.onUpdate(1000, 1000, 2 * SECOND);
+        assertEquals(1000, predictor.predict(10 * SECOND), 1e-6);
+        assertEquals(0, predictor.getRemainingMillis(2 * SECOND));
+        assertFalse(predictor.isAdvancing(10 * SECOND));
+    }
+
+    @Test
+    public void backwardsUpdate_resetsEstimate() throws Exception {
+        ProgressPredictor predictor = new ProgressPredictor(1000);
+        predictor.onUpdate(0, 1000, 0);
+        predictor.onUpdate(500, 1000, SECOND);
+        assertFalse(predictor.onUpdate(100, 1000, 2 * SECOND));
+        assertEquals(0, predictor.getThroughput(), 0);
+        assertEquals(-1, predictor.getRemainingMillis(2 * SECOND));
+        assertEquals(100, predictor.predict(3 * SECOND), 0);
+    }
+
+    @Test
+    public void singleSample_noPrediction() throws Exception {
+        ProgressPredictor predictor = new ProgressPredictor(1000);
+        assertTrue(predictor.onUpdate(42, 100, 0));
+        assertEquals(42, predictor.predict(SECOND), 0);
+        assertFalse(predictor.isAdvancing(SECOND));
+        assertEquals(-1, predictor.getRemainingMillis(0));
+    }
+}
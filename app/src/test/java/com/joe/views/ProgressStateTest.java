@@ -0,0 +1,128 @@
+package com.joe.views;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * ProgressState 单元测试
+ */
+public class ProgressStateTest {
+
+    @Test
+    public void setProgress_clampsToRange() throws Exception {
+        ProgressState state = new ProgressState(0, 100);
+        assertTrue(state.setProgress(150));
+        assertEquals(100, state.getProgress());
+        assertFalse(state.setProgress(100));
+        assertTrue(state.setProgress(-5));
+        assertEquals(0, state.getProgress());
+    }
+
+    @Test
+    public void setMax_clampsProgress() throws Exception {
+        ProgressState state = new ProgressState(0, 100);
+        state.setProgress(80);
+        assertTrue(state.setMax(50, true));
+        assertEquals(50, state.getProgress());
+        assertTrue(state.setMin(60, true));
+        assertEquals(50, state.getMin());
+    }
+
+    @Test
+    public void setMin_withoutClamp_keepsValue() throws Exception {
+        ProgressState state = new ProgressState(0, 100);
+        assertTrue(state.setMin(200, false));
+        assertTrue(state.setMax(500, true));
+        assertEquals(200, state.getMin());
+        assertEquals(500, state.getMax());
+        assertEquals(200, state.getProgress());
+    }
+
+    @Test
+    public void negativeValues_packCorrectly() throws Exception {
+        ProgressState state = new ProgressState(-100, -10);
+        state.setProgress(-50);
+        assertEquals(-100, state.getMin());
+        assertEquals(-10, state.getMax());
+        assertEquals(-50, state.getProgress());
+        assertEquals(0.5f, state.getScale(-55), 0.0001f);
+    }
+
+    @Test
+    public void offer_coalescesToLatestFlags() throws Exception {
+        ProgressState state = new ProgressState(0, 100);
+        assertTrue(state.offer(ProgressState.FLAG_ANIMATE));
+        assertFalse(state.offer(ProgressState.FLAG_FROM_USER));
+        int flags = state.drain();
+        assertEquals(ProgressState.FLAG_PENDING | ProgressState.FLAG_FROM_USER, flags);
+        assertEquals(0, state.drain());
+        assertTrue(state.offer(0));
+    }
+
+    @Test
+    public void offer_accumulatesTargets() throws Exception {
+        ProgressState state = new ProgressState(0, 100);
+        assertTrue(state.offer(ProgressState.FLAG_PRIMARY | ProgressState.FLAG_ANIMATE));
+        assertFalse(state.offer(ProgressState.FLAG_SECONDARY));
+        assertEquals(ProgressState.FLAG_PENDING | ProgressState.FLAG_PRIMARY
+                | ProgressState.FLAG_SECONDARY, state.drain());
+    }
+
+    @Test
+    public void setSecondaryProgress_keepsPrimary() throws Exception {
+        ProgressState state = new ProgressState(0, 100);
+        state.setProgress(30);
+        assertTrue(state.setSecondaryProgress(70));
+        assertFalse(state.setSecondaryProgress(70));
+        assertEquals(30, state.getProgress());
+        assertEquals(70, state.getSecondaryProgress());
+        state.setMax(50, true);
+        assertEquals(50, state.getSecondaryProgress());
+    }
+
+    @Test
+    public void concurrentProducers_keepLatestValueAndSingleSlot() throws Exception {
+        final ProgressState state = new ProgressState(0, Integer.MAX_VALUE);
+        final int producers = 4;
+        final int updates = 100000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final int[] posts = new int[producers];
+        Thread[] threads = new Thread[producers];
+        for (int t = 0; t < producers; t++) {
+            final int index = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 1; i <= updates; i++) {
+                        state.setProgress(i * producers + index);
+                        if (state.offer(0)) {
+                            posts[index]++;
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        int totalPosts = 0;
+        for (int count : posts) {
+            totalPosts += count;
+        }
+        //没有消费者时, 所有更新只占用一个槽, 只有第一次需要post
+        assertEquals(1, totalPosts);
+        assertEquals(ProgressState.FLAG_PENDING, state.drain());
+        assertTrue(state.getProgress() >= updates * producers);
+    }
+}
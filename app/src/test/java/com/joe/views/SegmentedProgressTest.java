@@ -0,0 +1,87 @@
+package com.joe.views;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * SegmentedProgress 单元测试
+ */
+public class SegmentedProgressTest {
+
+    @Test
+    public void completedNeighbours_mergeIntoOneRun() throws Exception {
+        SegmentedProgress segments = new SegmentedProgress(400, new long[] { 0, 100, 200, 300 });
+        segments.setSegmentProgress(0, 100);
+        segments.setSegmentProgress(1, 100);
+        segments.setSegmentProgress(2, 50);
+        float[] runs = new float[8];
+        assertEquals(1, segments.computeRuns(runs));
+        assertEquals(0f, runs[0], 0);
+        assertEquals(0.625f, runs[1], 0);
+    }
+
+    @Test
+    public void partialSegment_endsRun() throws Exception {
+        SegmentedProgress segments = new SegmentedProgress(400, new long[] { 0, 100, 200, 300 });
+        segments.setSegmentProgress(0, 50);
+        segments.setSegmentProgress(1, 100);
+        segments.setSegmentProgress(3, 10);
+        float[] runs = new float[8];
+        assertEquals(3, segments.computeRuns(runs));
+        assertArrayEquals(new float[] { 0f, 0.125f, 0.25f, 0.5f, 0.75f, 0.775f },
+                Arrays.copyOf(runs, 6), 0);
+    }
+
+    @Test
+    public void allComplete_singleFullRun() throws Exception {
+        final int count = 5000;
+        long[] starts = new long[count];
+        for (int i = 0; i < count; i++) {
+            starts[i] = i * 1024L;
+        }
+        SegmentedProgress segments = new SegmentedProgress(count * 1024L, starts);
+        for (int i = count - 1; i >= 0; i--) {
+            segments.setSegmentProgress(i, 1024);
+        }
+        float[] runs = new float[count * 2];
+        assertEquals(1, segments.computeRuns(runs));
+        assertEquals(0f, runs[0], 0);
+        assertEquals(1f, runs[1], 0);
+        assertEquals(count * 1024L, segments.getCompleted());
+    }
+
+    @Test
+    public void alternatingSegments_runPerCompletedSegment() throws Exception {
+        SegmentedProgress segments = new SegmentedProgress(1000, new long[] { 0, 100, 200, 300, 400,
+                500, 600, 700, 800, 900 });
+        for (int i = 0; i < 10; i += 2) {
+            segments.setSegmentProgress(i, 100);
+        }
+        assertEquals(5, segments.computeRuns(new float[20]));
+    }
+
+    @Test
+    public void setSegmentProgress_clampsAndReportsChange() throws Exception {
+        SegmentedProgress segments = new SegmentedProgress(300, new long[] { 0, 100, 250 });
+        assertTrue(segments.setSegmentProgress(2, 500));
+        assertEquals(50, segments.getSegmentProgress(2));
+        assertFalse(segments.setSegmentProgress(2, 60));
+        assertFalse(segments.setSegmentProgress(1, -1));
+        assertEquals(0, segments.getSegmentProgress(1));
+        assertEquals(150, segments.getSegmentLength(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unorderedStarts_rejected() throws Exception {
+        new SegmentedProgress(100, new long[] { 0, 50, 40 });
+    }
+
+    @Test
+    public void emptyProgress_noRuns() throws Exception {
+        SegmentedProgress segments = new SegmentedProgress(100, new long[] { 0, 50 });
+        assertEquals(0, segments.computeRuns(new float[4]));
+    }
+}
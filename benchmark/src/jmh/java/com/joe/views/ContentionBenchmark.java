@@ -0,0 +1,87 @@
+package com.joe.views;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多个生产者线程同时更新同一个进度条时的竞争
+ * <p>
+ * 生产者之间只通过CAS竞争进度值和刷新槽; "producersAndUiThread"组额外有一个线程扮演UI线程,
+ * 不断取出刷新槽, 模拟每次取出后生产者需要重新post的情况.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ContentionBenchmark {
+    private static final int MAX = 1000000;
+    private static final int WIDTH = 1080;
+
+    /**
+     * 同一组线程共享的进度条
+     */
+    @State(Scope.Group)
+    public static class GroupState {
+        ProgressState state;
+        ProgressEdgeFilter filter;
+        final AtomicInteger next = new AtomicInteger();
+
+        @Setup
+        public void setUp() {
+            state = new ProgressState(0, MAX);
+            filter = new ProgressEdgeFilter(state);
+            filter.setWidth(WIDTH);
+        }
+
+        int nextProgress() {
+            return next.getAndIncrement() % MAX;
+        }
+    }
+
+    /**
+     * 所有线程共享的刷新槽
+     */
+    @State(Scope.Benchmark)
+    public static class SharedState {
+        final ProgressState state = new ProgressState(0, MAX);
+    }
+
+    @Benchmark
+    @Group("producers")
+    @GroupThreads(4)
+    public boolean producers(GroupState group) {
+        return UpdateBenchmark.update(group.filter, group.state, group.nextProgress());
+    }
+
+    @Benchmark
+    @Group("producersAndUiThread")
+    @GroupThreads(3)
+    public boolean producer(GroupState group) {
+        return UpdateBenchmark.update(group.filter, group.state, group.nextProgress());
+    }
+
+    @Benchmark
+    @Group("producersAndUiThread")
+    @GroupThreads(1)
+    public int uiThread(GroupState group) {
+        return group.state.drain();
+    }
+
+    /**
+     * 只竞争刷新槽
+     */
+    @Benchmark
+    @Threads(4)
+    public boolean offer(SharedState shared) {
+        return shared.state.offer(ProgressState.FLAG_PRIMARY);
+    }
+}
@@ -0,0 +1,64 @@
+package com.joe.views;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进度边缘和尖角多边形的计算, 覆盖不同的尺寸
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GeometryBenchmark {
+    @Param({ "48", "1080", "4096" })
+    public int width;
+
+    @Param({ "8", "33", "120" })
+    public int height;
+
+    private final float[] mVertices = new float[ProgressGeometry.MAX_VERTICES * 2];
+    private float mSlant;
+    private long mProgress;
+
+    @Setup
+    public void setUp() {
+        mSlant = ProgressGeometry.tipSlant(height, ProgressGeometry.DEFAULT_TIP_ANGLE);
+    }
+
+    @Benchmark
+    public int computeEdgeInt() {
+        mProgress = (mProgress + 7) % 100;
+        return ProgressGeometry.computeEdge(0, 100, mProgress, width);
+    }
+
+    @Benchmark
+    public int computeEdgeLargeRange() {
+        //接近long上限的范围会走逐位乘除的路径
+        mProgress = (mProgress + 0x7FFFFFFFFFFFL) & Long.MAX_VALUE;
+        return ProgressGeometry.computeEdge(0, Long.MAX_VALUE, mProgress, width);
+    }
+
+    @Benchmark
+    public float tipSlant() {
+        return ProgressGeometry.tipSlant(height, ProgressGeometry.DEFAULT_TIP_ANGLE);
+    }
+
+    @Benchmark
+    public int buildTipPolygon() {
+        mProgress = (mProgress + 13) % width;
+        return ProgressGeometry.buildRunPolygon(mVertices, 0, mProgress, width, height, mSlant, 8);
+    }
+
+    @Benchmark
+    public int buildFullPolygon() {
+        return ProgressGeometry.buildRunPolygon(mVertices, 0, width, width, height, mSlant, 8);
+    }
+}
@@ -0,0 +1,54 @@
+package com.joe.views;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分段进度: 合并区间的开销(与分段数量相关, 每次刷新只计算一次)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SegmentBenchmark {
+    private static final long SEGMENT_LENGTH = 1 << 20;
+
+    @Param({ "100", "1000", "10000" })
+    public int segments;
+
+    private SegmentedProgress mProgress;
+    private float[] mRuns;
+    private int mNext;
+
+    @Setup
+    public void setUp() {
+        long[] starts = new long[segments];
+        for (int i = 0; i < segments; i++) {
+            starts[i] = i * SEGMENT_LENGTH;
+        }
+        mProgress = new SegmentedProgress(segments * SEGMENT_LENGTH, starts);
+        //一半已完成, 其余分段完成了一部分
+        for (int i = 0; i < segments; i++) {
+            mProgress.setSegmentProgress(i, i % 2 == 0 ? SEGMENT_LENGTH : SEGMENT_LENGTH / 3);
+        }
+        mRuns = new float[segments * 2];
+    }
+
+    @Benchmark
+    public int computeRuns() {
+        return mProgress.computeRuns(mRuns);
+    }
+
+    @Benchmark
+    public boolean setSegmentProgress() {
+        mNext = mNext + 1 >= segments ? 0 : mNext + 1;
+        return mProgress.setSegmentProgress(mNext, (mNext * 31L) % SEGMENT_LENGTH);
+    }
+}
@@ -0,0 +1,144 @@
+package com.joe.views;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 传输进度统计: 包装后的通道和输入流与直接读取的吞吐对比
+ * <p>
+ * plain/sampled和plainStream/sampledStream两两比较, 包装后的吞吐应该与直接读取基本相同
+ * (这个对比不放在单元测试里, 墙上时间的比较在CI机器上不稳定).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TransferBenchmark {
+    private static final int DATA_SIZE = 16 * 1024 * 1024;
+
+    @Param({ "8192", "65536" })
+    public int bufferSize;
+
+    private MemoryChannel mSource;
+    private ByteBuffer mBuffer;
+    private byte[] mArray;
+    private long mReported;
+
+    /**
+     * 内存中的数据源, 每次读取复制到调用者的缓冲区
+     */
+    static final class MemoryChannel implements ReadableByteChannel {
+        private final ByteBuffer mData;
+
+        MemoryChannel(int size) {
+            mData = ByteBuffer.allocateDirect(size);
+        }
+
+        void rewind() {
+            mData.clear();
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            if (!mData.hasRemaining()) {
+                return -1;
+            }
+            final int count = Math.min(dst.remaining(), mData.remaining());
+            final int limit = mData.limit();
+            mData.limit(mData.position() + count);
+            dst.put(mData);
+            mData.limit(limit);
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        mSource = new MemoryChannel(DATA_SIZE);
+        mBuffer = ByteBuffer.allocateDirect(bufferSize);
+        mArray = new byte[bufferSize];
+    }
+
+    private static long drain(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        long total = 0;
+        int read;
+        buffer.clear();
+        while ((read = channel.read(buffer)) >= 0) {
+            total += read;
+            buffer.clear();
+        }
+        return total;
+    }
+
+    private static long drain(InputStream in, byte[] buffer) throws IOException {
+        long total = 0;
+        int read;
+        while ((read = in.read(buffer, 0, buffer.length)) >= 0) {
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * 1080像素宽的进度条的采样器
+     */
+    private ProgressSampler newSampler() {
+        return new ProgressSampler(new ProgressSink() {
+            @Override
+            public void onProgress(long transferred) {
+                mReported = transferred;
+            }
+        }, DATA_SIZE / 1080, 100);
+    }
+
+    @Benchmark
+    public long plain() throws IOException {
+        mSource.rewind();
+        return drain(mSource, mBuffer);
+    }
+
+    @Benchmark
+    public long sampled(Blackhole blackhole) throws IOException {
+        mSource.rewind();
+        final long total = drain(new ProgressReadableByteChannel(mSource, newSampler()), mBuffer);
+        blackhole.consume(mReported);
+        return total;
+    }
+
+    @Benchmark
+    public long plainStream() throws IOException {
+        mSource.rewind();
+        return drain(Channels.newInputStream(mSource), mArray);
+    }
+
+    @Benchmark
+    public long sampledStream(Blackhole blackhole) throws IOException {
+        mSource.rewind();
+        final long total = drain(new ProgressInputStream(Channels.newInputStream(mSource),
+                newSampler()), mArray);
+        blackhole.consume(mReported);
+        return total;
+    }
+}
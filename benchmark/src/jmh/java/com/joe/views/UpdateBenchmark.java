@@ -0,0 +1,87 @@
+package com.joe.views;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单线程的进度更新吞吐量
+ * <p>
+ * 直接测量应用中的{@link ProgressEdgeFilter}: 写入无锁状态、计算进度边缘、边缘没有移动时直接返回,
+ * 否则写入最新值刷新槽(与HorizontalProgressBarWithAngle在非UI线程上的路径相同).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UpdateBenchmark {
+    private static final int MAX_LEVEL = 10000;
+    private static final long LONG_MAX = 10L * 1024 * 1024 * 1024;
+
+    @Param({ "100", "10000", "1000000" })
+    public int max;
+
+    @Param({ "1080" })
+    public int width;
+
+    private ProgressState mState;
+    private ProgressEdgeFilter mFilter;
+    private int mProgress;
+    private long mLongProgress;
+
+    @Setup
+    public void setUp() {
+        mState = new ProgressState(0, max);
+        mFilter = new ProgressEdgeFilter(mState);
+        mFilter.setWidth(width);
+    }
+
+    /**
+     * 每次调用进度都变化(大部分调用被像素边缘过滤掉)
+     */
+    @Benchmark
+    public boolean setProgress() {
+        mProgress = mProgress >= max ? 0 : mProgress + 1;
+        return update(mFilter, mState, mProgress);
+    }
+
+    /**
+     * 每次调用进度边缘都移动, 每次都写入刷新槽(UI线程每次取出)
+     */
+    @Benchmark
+    public int setProgressEveryEdgeMoves() {
+        mProgress = mProgress >= max ? 0 : mProgress + Math.max(1, max / width);
+        update(mFilter, mState, mProgress);
+        return mState.drain();
+    }
+
+    /**
+     * 长整型进度: 映射到定点范围后更新
+     */
+    @Benchmark
+    public boolean setProgressLong() {
+        mLongProgress += 8192;
+        if (mLongProgress > LONG_MAX) {
+            mLongProgress = 0;
+        }
+        final int level = ProgressGeometry.computeEdge(0, LONG_MAX, mLongProgress, MAX_LEVEL);
+        return update(mFilter, mState, level);
+    }
+
+    /**
+     * HorizontalProgressBarWithAngle#setProgressInternal的非UI部分: 边缘过滤后写入最新值刷新槽
+     */
+    static boolean update(ProgressEdgeFilter filter, ProgressState state, int progress) {
+        final int result = filter.setProgress(progress);
+        if (result == ProgressEdgeFilter.REFRESH) {
+            state.offer(ProgressState.FLAG_PRIMARY);
+        }
+        return result != ProgressEdgeFilter.UNCHANGED;
+    }
+}